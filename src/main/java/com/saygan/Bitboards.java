@@ -0,0 +1,130 @@
+package com.saygan;
+
+public class Bitboards {
+
+    public static final int SQUARES = 64;
+    public static final int NO_SQUARE = -1;
+
+    private static final int[][] KNIGHT_JUMPS = new int[][] {
+        { 1, 2 }, { 2, 1 }, { 2, -1 }, { 1, -2 }, { -1, -2 }, { -2, -1 }, { -2, 1 }, { -1, 2 }
+    };
+
+    private static final String[] COORDS = new String[SQUARES];
+    private static final long[] KNIGHT_ATTACKS = new long[SQUARES];
+    private static final long[] KING_ATTACKS = new long[SQUARES];
+    private static final long[][] PAWN_ATTACKS = new long[2][SQUARES];
+    private static final long[][] BETWEEN = new long[SQUARES][SQUARES];
+    private static final long[][] LINE = new long[SQUARES][SQUARES];
+
+    static {
+        for (int square = 0; square < SQUARES; ++square) {
+            COORDS[square] = new String(new char[] { (char) ('a' + file(square)), (char) ('1' + rank(square)) });
+
+            for (int[] jump : KNIGHT_JUMPS) {
+                KNIGHT_ATTACKS[square] |= step(square, jump[0], jump[1]);
+            }
+            for (Direction direction : Direction.values()) {
+                KING_ATTACKS[square] |= step(square, direction.getDx(), direction.getDy());
+            }
+            PAWN_ATTACKS[Pieces.WHITE][square] = step(square, -1, 1) | step(square, 1, 1);
+            PAWN_ATTACKS[Pieces.BLACK][square] = step(square, -1, -1) | step(square, 1, -1);
+
+            for (Direction direction : Direction.values()) {
+                long line = ray(square, direction.getDx(), direction.getDy())
+                          | ray(square, -direction.getDx(), -direction.getDy())
+                          | bit(square);
+                long between = 0L;
+                for (int target = square; (target = next(target, direction)) != NO_SQUARE; ) {
+                    BETWEEN[square][target] = between;
+                    LINE[square][target] = line;
+                    between |= bit(target);
+                }
+            }
+        }
+    }
+
+    private static int next(int square, Direction direction) {
+        long cell = step(square, direction.getDx(), direction.getDy());
+        return cell == 0L? NO_SQUARE : first(cell);
+    }
+
+    private static long ray(int square, int dx, int dy) {
+        long ray = 0L;
+        for (long cell = step(square, dx, dy); cell != 0L; cell = step(first(cell), dx, dy)) {
+            ray |= cell;
+        }
+        return ray;
+    }
+
+    private static long step(int square, int dx, int dy) {
+        int file = file(square) + dx;
+        int rank = rank(square) + dy;
+        return file >= 0 && file < 8 && rank >= 0 && rank < 8? bit(square(file, rank)) : 0L;
+    }
+
+    public static long knightAttacks(int square) {
+        return KNIGHT_ATTACKS[square];
+    }
+
+    public static long kingAttacks(int square) {
+        return KING_ATTACKS[square];
+    }
+
+    public static long pawnAttacks(Turn side, int square) {
+        return PAWN_ATTACKS[side.ordinal()][square];
+    }
+
+    /**
+     * Cells strictly between two squares sharing a rank, file or diagonal, empty otherwise.
+     */
+    public static long between(int from, int to) {
+        return BETWEEN[from][to];
+    }
+
+    /**
+     * Whole board line through two squares sharing a rank, file or diagonal, empty otherwise.
+     */
+    public static long line(int from, int to) {
+        return LINE[from][to];
+    }
+
+    public static int square(int file, int rank) {
+        return (rank << 3) | file;
+    }
+
+    public static int square(String coord) {
+        return square(coord.charAt(0) - 'a', coord.charAt(1) - '1');
+    }
+
+    public static String coord(int square) {
+        return COORDS[square];
+    }
+
+    public static int file(int square) {
+        return square & 7;
+    }
+
+    public static int rank(int square) {
+        return square >>> 3;
+    }
+
+    public static long bit(int square) {
+        return 1L << square;
+    }
+
+    public static long bits(String ... coords) {
+        long bitboard = 0L;
+        for (String coord : coords) {
+            bitboard |= bit(square(coord));
+        }
+        return bitboard;
+    }
+
+    public static int first(long bitboard) {
+        return Long.numberOfTrailingZeros(bitboard);
+    }
+
+    public static boolean contains(long bitboard, int square) {
+        return (bitboard & bit(square)) != 0;
+    }
+}
@@ -0,0 +1,52 @@
+package com.saygan;
+
+import static com.saygan.ChessUtils.isOutOfBorder;
+import static com.saygan.ChessUtils.xyToSquare;
+
+import java.util.Map;
+
+import javafx.event.EventHandler;
+import javafx.event.EventType;
+import javafx.scene.Cursor;
+import javafx.scene.input.MouseEvent;
+
+/**
+ * The one mouse handler of the pieces layer. It finds the square under the cursor from the
+ * coordinates and lets a drag start only on a piece of the side to move, then hands the
+ * press, drag and release over to the START, MOVE and STOP handlers. Pieces carry no
+ * handlers of their own, so a change of turn does not touch them.
+ */
+public class BoardEventDispatcher implements EventHandler<MouseEvent> {
+
+    private final ChessUI ui;
+    private final Map<String, EventHandler<MouseEvent>> eventHandlers;
+
+    private boolean dragging;
+
+    BoardEventDispatcher(ChessUI ui, Map<String, EventHandler<MouseEvent>> eventHandlers) {
+        this.ui = ui;
+        this.eventHandlers = eventHandlers;
+    }
+
+    @Override
+    public void handle(MouseEvent e) {
+        EventType<? extends MouseEvent> type = e.getEventType();
+        if (type == MouseEvent.MOUSE_MOVED) {
+            ui.piecesLayer.setCursor(isMovablePieceAt(e)? Cursor.OPEN_HAND : Cursor.DEFAULT);
+        } else if (type == MouseEvent.MOUSE_PRESSED) {
+            dragging = isMovablePieceAt(e);
+            if (dragging) {
+                eventHandlers.get("START").handle(e);
+            }
+        } else if (type == MouseEvent.MOUSE_DRAGGED && dragging) {
+            eventHandlers.get("MOVE").handle(e);
+        } else if (type == MouseEvent.MOUSE_RELEASED && dragging) {
+            dragging = false;
+            eventHandlers.get("STOP").handle(e);
+        }
+    }
+
+    private boolean isMovablePieceAt(MouseEvent e) {
+        return !isOutOfBorder(e.getX(), e.getY()) && ui.isMovablePiece(xyToSquare(e.getX(), e.getY()));
+    }
+}
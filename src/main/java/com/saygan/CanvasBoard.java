@@ -0,0 +1,306 @@
+package com.saygan;
+
+import static com.saygan.Bitboards.NO_SQUARE;
+import static com.saygan.Bitboards.SQUARES;
+import static com.saygan.Bitboards.bit;
+import static com.saygan.Bitboards.contains;
+import static com.saygan.Bitboards.file;
+import static com.saygan.Bitboards.first;
+import static com.saygan.Bitboards.rank;
+import static com.saygan.Constants.BOARD_HEIGHT_PX;
+import static com.saygan.Constants.BOARD_WIDTH_PX;
+import static com.saygan.Constants.CELL_MARK_RADIUS;
+import static com.saygan.Constants.CELL_SIZE;
+
+import java.util.Arrays;
+
+import javafx.application.Platform;
+import javafx.geometry.VPos;
+import javafx.geometry.Rectangle2D;
+import javafx.scene.Node;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.input.MouseEvent;
+import javafx.scene.paint.Color;
+import javafx.scene.text.Font;
+import javafx.scene.text.FontWeight;
+import javafx.scene.text.TextAlignment;
+
+/**
+ * Board drawn on one Canvas instead of a scene graph node per cell, marker and piece, for
+ * screens showing many boards at once. Only the cells changed since the last frame are
+ * repainted, and mouse events are mapped to squares by arithmetic instead of picking.
+ * A finished game shows its result over the board until a click starts the next one.
+ */
+public class CanvasBoard implements GameListener {
+
+    private static final Color LIGHT_CELL = Color.YELLOW;
+    private static final Color DARK_CELL = Color.BROWN;
+    private static final Color MARKER = new Color(0, 0, 0, 0.35);
+    private static final Color TARGET = Color.GREEN;
+    private static final Color CHECK = Color.RED;
+    private static final Color RESULT_VEIL = new Color(0, 0, 0, 0.5);
+    private static final Color RESULT_TEXT = Color.WHITE;
+    private static final Font RESULT_FONT = Font.font(null, FontWeight.BOLD, 28);
+    private static final int FRAME_WIDTH = 4;
+
+    private final Canvas canvas;
+    private final GraphicsContext graphics;
+    private final PieceSprites sprites;
+    private final int[] board;
+
+    private ChessEngine engine;
+    private Turn turn;
+    // how the game ended, shown over the board until a click starts the next one
+    private String result;
+
+    private long possibleMoves;
+    private int checkedKing;
+    private int from;
+    private int target;
+    // top left corner of the dragged piece and where in its cell it was grabbed
+    private double dragX;
+    private double dragY;
+    private double grabX;
+    private double grabY;
+
+    // cells to repaint on the next frame
+    private long dirty;
+    private boolean redrawScheduled;
+
+    public CanvasBoard() {
+        canvas = new Canvas(BOARD_WIDTH_PX, BOARD_HEIGHT_PX);
+        graphics = canvas.getGraphicsContext2D();
+        sprites = PieceSprites.of(CELL_SIZE);
+        board = new int[SQUARES];
+        Arrays.fill(board, Pieces.NONE);
+        turn = Turn.WHITE;
+        checkedKing = NO_SQUARE;
+        from = NO_SQUARE;
+        target = NO_SQUARE;
+        dirty = -1L;
+
+        canvas.setOnMousePressed(this::onPressed);
+        canvas.setOnMouseDragged(this::onDragged);
+        canvas.setOnMouseReleased(this::onReleased);
+    }
+
+    public Node getRoot() {
+        return canvas;
+    }
+
+    public void setEngine(ChessEngine engine) {
+        this.engine = engine;
+    }
+
+    @Override
+    public void pieceAdded(int square, int piece) {
+        board[square] = piece;
+        invalidate(bit(square));
+    }
+
+    @Override
+    public void pieceRemoved(int square) {
+        board[square] = Pieces.NONE;
+        invalidate(bit(square));
+    }
+
+    @Override
+    public void pieceMoved(int from, int to) {
+        board[to] = board[from];
+        board[from] = Pieces.NONE;
+        invalidate(bit(from) | bit(to));
+    }
+
+    @Override
+    public void turnChanged(Turn turn) {
+        this.turn = turn;
+    }
+
+    @Override
+    public void checkDeclared(Turn attackedSide) {
+        int king = Pieces.of(attackedSide, Pieces.KING);
+        for (int square = 0; square < SQUARES; ++square) {
+            if (board[square] == king) {
+                setCheckedKing(square);
+            }
+        }
+    }
+
+    @Override
+    public void messagesCleared() {
+        setCheckedKing(NO_SQUARE);
+        setResult(null);
+    }
+
+    private void setCheckedKing(int square) {
+        invalidate(cells(checkedKing) | cells(square));
+        checkedKing = square;
+    }
+
+    private void setResult(String result) {
+        if (this.result != null || result != null) {
+            this.result = result;
+            invalidate(-1L);
+        }
+    }
+
+    private void onPressed(MouseEvent e) {
+        if (result != null) {
+            engine.startNewGame();
+            return;
+        }
+        int square = squareAt(e.getX(), e.getY());
+        if (square == NO_SQUARE || board[square] == Pieces.NONE || turn == null || Pieces.colour(board[square]) != turn.ordinal()) {
+            return;
+        }
+        engine.setFrom(square);
+        from = square;
+        target = square;
+        possibleMoves = engine.getPossibleMoves();
+        grabX = e.getX() - x(square);
+        grabY = e.getY() - y(square);
+        dragX = x(square);
+        dragY = y(square);
+        invalidate(possibleMoves | bit(square));
+    }
+
+    private void onDragged(MouseEvent e) {
+        if (from == NO_SQUARE) {
+            return;
+        }
+        long previous = coveredCells();
+        dragX = clamp(e.getX() - grabX, BOARD_WIDTH_PX - CELL_SIZE);
+        dragY = clamp(e.getY() - grabY, BOARD_HEIGHT_PX - CELL_SIZE);
+
+        int square = squareAt(e.getX(), e.getY());
+        int newTarget = square != NO_SQUARE && contains(possibleMoves, square)? square : from;
+        if (newTarget != target) {
+            invalidate(bit(target) | bit(newTarget));
+            target = newTarget;
+        }
+        invalidate(previous | coveredCells());
+    }
+
+    private void onReleased(MouseEvent e) {
+        if (from == NO_SQUARE) {
+            return;
+        }
+        int square = squareAt(e.getX(), e.getY());
+        invalidate(coveredCells() | possibleMoves | bit(from) | bit(target));
+        int moving = from;
+        from = NO_SQUARE;
+        target = NO_SQUARE;
+        possibleMoves = 0L;
+
+        if (square != NO_SQUARE && square != moving && engine.isPossibleMove(square)) {
+            int promotion = engine.isPromotion(square)? Pieces.type(Pieces.fromName(UIFactory.askForPromotion(turn))) : Pieces.NONE;
+            if (engine.moveCompleted(square, promotion)) {
+                showResult();
+            }
+        }
+    }
+
+    private void showResult() {
+        if (engine.isInCheckMateState()) {
+            setResult("Checkmate! " + engine.getWinner() + " won");
+        } else if (engine.isDraw()) {
+            setResult("Draw! " + engine.getDraw().name().replace('_', ' '));
+        }
+    }
+
+    private void invalidate(long cells) {
+        dirty |= cells;
+        if (!redrawScheduled && dirty != 0) {
+            redrawScheduled = true;
+            Platform.runLater(this::redraw);
+        }
+    }
+
+    private void redraw() {
+        redrawScheduled = false;
+        // the result spans the whole board, so any change under it repaints everything
+        for (long cells = result != null? -1L : dirty; cells != 0; cells &= cells - 1) {
+            drawCell(first(cells));
+        }
+        // the dragged piece only ever covers cells that were just repainted
+        if (from != NO_SQUARE) {
+            drawPiece(board[from], dragX, dragY);
+        }
+        if (result != null) {
+            drawResult();
+        }
+        dirty = 0L;
+    }
+
+    private void drawResult() {
+        graphics.setFill(RESULT_VEIL);
+        graphics.fillRect(0, 0, BOARD_WIDTH_PX, BOARD_HEIGHT_PX);
+        graphics.setFill(RESULT_TEXT);
+        graphics.setFont(RESULT_FONT);
+        graphics.setTextAlign(TextAlignment.CENTER);
+        graphics.setTextBaseline(VPos.CENTER);
+        graphics.fillText(result, BOARD_WIDTH_PX / 2, BOARD_HEIGHT_PX / 2);
+    }
+
+    private void drawCell(int square) {
+        double x = x(square);
+        double y = y(square);
+        graphics.setFill((file(square) + rank(square)) % 2 == 0? DARK_CELL : LIGHT_CELL);
+        graphics.fillRect(x, y, CELL_SIZE, CELL_SIZE);
+
+        if (square == checkedKing || square == target) {
+            graphics.setStroke(square == target? TARGET : CHECK);
+            graphics.setLineWidth(FRAME_WIDTH);
+            graphics.strokeRect(x + FRAME_WIDTH / 2, y + FRAME_WIDTH / 2, CELL_SIZE - FRAME_WIDTH, CELL_SIZE - FRAME_WIDTH);
+        }
+        if (contains(possibleMoves, square)) {
+            graphics.setFill(MARKER);
+            graphics.fillOval(x + CELL_SIZE / 2 - CELL_MARK_RADIUS, y + CELL_SIZE / 2 - CELL_MARK_RADIUS, 2 * CELL_MARK_RADIUS, 2 * CELL_MARK_RADIUS);
+        }
+        if (board[square] != Pieces.NONE && square != from) {
+            drawPiece(board[square], x, y);
+        }
+    }
+
+    // cells overlapped by the dragged piece, at most four
+    private long coveredCells() {
+        if (from == NO_SQUARE) {
+            return 0L;
+        }
+        return cellsAt(dragX, dragY) | cellsAt(dragX + CELL_SIZE - 1, dragY)
+             | cellsAt(dragX, dragY + CELL_SIZE - 1) | cellsAt(dragX + CELL_SIZE - 1, dragY + CELL_SIZE - 1);
+    }
+
+    private long cellsAt(double x, double y) {
+        return cells(squareAt(x, y));
+    }
+
+    private static long cells(int square) {
+        return square == NO_SQUARE? 0L : bit(square);
+    }
+
+    private static int squareAt(double x, double y) {
+        if (x < 0 || y < 0 || x >= BOARD_WIDTH_PX || y >= BOARD_HEIGHT_PX) {
+            return NO_SQUARE;
+        }
+        return Bitboards.square((int) (x / CELL_SIZE), 7 - (int) (y / CELL_SIZE));
+    }
+
+    private static double x(int square) {
+        return file(square) * CELL_SIZE;
+    }
+
+    private static double y(int square) {
+        return (7 - rank(square)) * CELL_SIZE;
+    }
+
+    private static double clamp(double value, double max) {
+        return Math.max(0, Math.min(max, value));
+    }
+
+    private void drawPiece(int piece, double x, double y) {
+        Rectangle2D sprite = sprites.getViewport(piece);
+        graphics.drawImage(sprites.getAtlas(), sprite.getMinX(), sprite.getMinY(), CELL_SIZE, CELL_SIZE, x, y, CELL_SIZE, CELL_SIZE);
+    }
+}
@@ -5,20 +5,35 @@ import java.util.Map;
 
 import javafx.application.Application;
 import javafx.event.EventHandler;
+import javafx.scene.Parent;
 import javafx.scene.Scene;
 import javafx.scene.input.MouseEvent;
+import javafx.scene.layout.FlowPane;
 import javafx.stage.Stage;
 
 public class ChessApplication extends Application {
 
+    // -Dchess.boards=N shows N independent games drawn on canvases instead of the regular board
+    private static final String BOARDS_PROPERTY = "chess.boards";
+    private static final int BOARDS_GAP_PX = 10;
+
     private ChessUI ui;
     private ChessEngine engine;
     private Map<String, EventHandler<MouseEvent>> eventHandlers;
+    private FlowPane boards;
 
     public ChessApplication() {
+        int boardsCount = Integer.getInteger(BOARDS_PROPERTY, 0);
+        if (boardsCount > 0) {
+            createCanvasBoards(boardsCount);
+            return;
+        }
+
         eventHandlers = new HashMap<>();
         ui = new ChessUI(eventHandlers);
         engine = new ChessEngine(ui);
+        engine.enablePondering();
+        ui.setEngine(engine);
         eventHandlers.put("MOVE", new PieceMoveHandler(ui, engine));
         eventHandlers.put("START", new StartMovigPieceHandler(ui, engine));
         eventHandlers.put("STOP", new StopMovingPieceHandler(ui, engine));
@@ -26,10 +41,28 @@ public class ChessApplication extends Application {
         engine.startNewGame();
     }
 
+    private void createCanvasBoards(int count) {
+        boards = new FlowPane(BOARDS_GAP_PX, BOARDS_GAP_PX);
+        boards.setPrefWrapLength(Math.min(count, 4) * (Constants.BOARD_WIDTH_PX + BOARDS_GAP_PX));
+        for (int i = 0; i < count; ++i) {
+            CanvasBoard board = new CanvasBoard();
+            ChessEngine boardEngine = new ChessEngine(board);
+            board.setEngine(boardEngine);
+            boardEngine.startNewGame();
+            boards.getChildren().add(board.getRoot());
+        }
+    }
+
     public void start(Stage stage) throws Exception {
 
-        ui.setMainStage(stage);
-        Scene scene = new Scene(ui.getRoot());
+        Parent root;
+        if (ui != null) {
+            ui.setMainStage(stage);
+            root = ui.getRoot();
+        } else {
+            root = boards;
+        }
+        Scene scene = new Scene(root);
 
         stage.setResizable(false);
         stage.setTitle("Chess");
@@ -1,777 +1,449 @@
 package com.saygan;
 
+import static com.saygan.Bitboards.bit;
+import static com.saygan.Bitboards.contains;
+import static com.saygan.Bitboards.coord;
+import static com.saygan.Bitboards.first;
+import static com.saygan.Bitboards.square;
+
 import java.io.File;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
-import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashMap;
-import java.util.Iterator;
-import java.util.LinkedHashMap;
-import java.util.List;
-import java.util.Map;
 import java.util.Optional;
-import java.util.function.Predicate;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
+import com.saygan.analysis.PawnHashTable;
+import com.saygan.analysis.PawnStructure;
 import com.saygan.file.ChessFileManager;
 import com.saygan.file.GameState;
 import com.saygan.file.PlainTextChessFileManager;
+import com.saygan.search.Search;
+import com.saygan.search.SearchLimits;
+import com.saygan.search.SearchResult;
 
 public class ChessEngine {
 
     private static final String SAVES_DIRECTORY = "saves";
 
-    private static final String SNAPSHOT_EMPTY_CELL = "..";
     private static final int MAX_REPEAT_POSITION = 3;
+    // plies without a capture or pawn move, the game is drawn on the ply that reaches it
     private static final int LONG_GAME_MOVES_COUNT = 50 * 2;
-    private static final char BLACK_IN_PASSANT_TARGET_CELL = '6';
-    private static final char WHITE_IN_PASSANT_TARGET_CELL = '3';
-    private static final int START_WHITE_PAWN_RANK = 1;
-    private static final int START_BLACK_PAWN_RANK = 6;
-
-    private static final int LEFT_ROOK = 0;
-    private static final int KING = 1;
-    private static final int RIGHT_ROOK = 2;
-
-    private final int[] LONG_PART_OF_KNIGHT_MOVES = new int[] { 2, -2 };
-    private final int[] SHORT_PART_OF_KNIGHT_MOVES = new int[] { 1, -1 };
-
-    private static final int MAX = 7;
-    private Turn turn;
-    private String coordFrom;
-    private String currentPieceMove;
-    private String inPassantTargetCell;
-    private String inPassantPossibleVictim;
+
+    private static final int C1 = square("c1");
+    private static final int D1 = square("d1");
+    private static final int F1 = square("f1");
+    private static final int G1 = square("g1");
+    private static final int C8 = square("c8");
+    private static final int D8 = square("d8");
+    private static final int F8 = square("f8");
+    private static final int G8 = square("g8");
+
+    private int coordFrom;
     private Turn winner;
     private Turn underCheck;
-    private int possibleDrawMovesCount;
-
-    private ChessUI ui;
 
-    private Map<Turn, Direction> pawnMoveDirections = new HashMap<>();
-    private Map<Turn, List<Direction>> pawnFightDirections = new HashMap<>();
-    private Map<String, String> white;
-    private Map<String, String> black;
-    private List<String> possibleMovesCache;
-    private Map<String, Integer> boardSnapshotsCount;
+    private GameListener listener;
 
-    private boolean[] whiteCastleConditions;
-    private boolean[] blackCastleConditions;
+    private Position position;
+    private MoveGenerator moveGenerator;
+    // legal moves of the side to move, rebuilt once per turn, and their destinations by origin cell
+    private int[] legalMoves;
+    private int legalMovesCount;
+    private long[] destinations;
+    private int verdict;
 
-    private String[][] boardNavigator;
+    private PositionCache cache;
+    private int[] cachedMoves;
 
     private Draw draw;
 
-    private ChessFileManager fileManager;
+    private Search search;
+    private ExecutorService computerPlayer;
+    private Ponderer ponderer;
 
-    public ChessEngine(ChessUI ui) {
+    private ChessFileManager fileManager;
 
-        pawnMoveDirections.put(Turn.WHITE, Direction.UP);
-        pawnMoveDirections.put(Turn.BLACK, Direction.DOWN);
+    public ChessEngine() {
+        this(GameListener.NONE);
+    }
 
-        pawnFightDirections.put(Turn.WHITE, Arrays.asList(Direction.UP_LEFT, Direction.UP_RIGHT));
-        pawnFightDirections.put(Turn.BLACK, Arrays.asList(Direction.DOWN_LEFT, Direction.DOWN_RIGHT));
+    public ChessEngine(GameListener listener) {
+        this(listener, PositionCache.shared());
+    }
 
-        this.ui = ui;
-        ui.setEngine(this);
+    public ChessEngine(GameListener listener, PositionCache cache) {
 
-        white = new LinkedHashMap<>();
-        black = new LinkedHashMap<>();
-        possibleMovesCache = new ArrayList<>();
-        boardSnapshotsCount = new HashMap<>();
+        this.listener = listener;
+        this.cache = cache;
+        cachedMoves = new int[Move.MAX_MOVES];
 
-        boardNavigator = new String[8][];
-        for (int col = 0; col < boardNavigator.length; ++col) {
-            boardNavigator[col] = new String[8];
-            for (int row = 0; row < boardNavigator[col].length; ++row) {
-                boardNavigator[col][row] = new String(new char[] { (char) ('a' + col), (char) ('1' + row) });
-            }
-        }
+        position = new Position();
+        moveGenerator = new MoveGenerator();
+        legalMoves = new int[Move.MAX_MOVES];
+        destinations = new long[Bitboards.SQUARES];
 
         fileManager = new PlainTextChessFileManager();
     }
 
     public void startNewGame() {
+        cache.newGeneration();
         doStartGame(GameState.INITIAL_STATE);
     }
 
+    /**
+     * Sets the position up without starting a new cache generation, for callers
+     * that go through many unrelated positions.
+     */
+    public void startGame(GameState state) {
+        doStartGame(state);
+    }
+
     private void doStartGame(GameState state) {
 
-        possibleMovesCache.clear();
-        ui.clearMessages();
+        listener.messagesCleared();
         draw = null;
         winner = null;
-        underCheck = state.getUnderCheck();
-        possibleDrawMovesCount = state.getPossibleDrawMovesCount();
-
-        removePieces(white);
-        removePieces(black);
-        boardSnapshotsCount.clear();
-        boardSnapshotsCount.putAll(state.getSnapshots());
 
-        whiteCastleConditions = state.getWhiteCastleConditions();
-        blackCastleConditions = state.getBlackCastleConditions();
+        removePieces();
 
-        white.clear();
-        black.clear();
+        position.load(state);
 
-        white.putAll(state.getWhite());
-        black.putAll(state.getBlack());
-
-        for (Map.Entry<String, String> entry : white.entrySet()) {
-            preparePiece(entry.getKey(), entry.getValue());
+        for(long pieces = position.occupancy(); pieces != 0; pieces &= pieces - 1) {
+            preparePiece(first(pieces));
         }
 
-        for (Map.Entry<String, String> entry : black.entrySet()) {
-            preparePiece(entry.getKey(), entry.getValue());
+        generateLegalMoves();
+        underCheck = (verdict & PositionCache.CHECK) != 0? position.getTurn() : null;
+        if (legalMovesCount == 0) {
+            if (underCheck != null) {
+                winner = invertTurn(position.getTurn());
+            } else {
+                draw = Draw.STALEMATE;
+            }
         }
-
-        turn = state.getTurn();
-        ui.setTurn(turn);
+        listener.turnChanged(position.getTurn());
 
         if(underCheck != null) {
-            ui.declareCheck(underCheck);
+            listener.checkDeclared(underCheck);
         }
+        ponder();
     }
 
-    private void preparePiece(String coord, String pieceName) {
-        ui.putNewPieceOnBoard(coord, pieceName);
-    }
-
-    public void setFromCoord(String startBoardCoord) {
-        coordFrom = startBoardCoord;
-        currentPieceMove = resolveTurning().get(coordFrom);
-    }
-
-    public List<String> getPossibleMoves() {
-        if (!possibleMovesCache.isEmpty()) {
-            return possibleMovesCache;
+    /**
+     * Lets the engine prepare the answers to every move of the side to move in the
+     * background while its player thinks, see {@link Ponderer}.
+     */
+    public void enablePondering() {
+        if (ponderer == null) {
+            ponderer = new Ponderer(cache);
+            ponder();
         }
-
-        boolean[] castleConditions = resolveTurningCastleConditions(turn);
-        Map<String, String> turning = resolveTurning();
-        Map<String, String> waiting = resolveWaiting();
-
-        List<String> possibleMoves = doGetPossibleMoves(turn, coordFrom, turning, waiting);
-        List<String> cellsToRemove = new ArrayList<>();
-
-        for(Iterator<String> it = possibleMoves.iterator(); it.hasNext();) {
-            String possibleMove = it.next();
-            Map<String, String> turningCopy = new LinkedHashMap<>(turning);
-            Map<String, String> waitingCopy = new LinkedHashMap<>(waiting);
-            if (waitingCopy.containsKey(possibleMove)) {
-                waitingCopy.remove(possibleMove);
-            }
-            turningCopy.put(possibleMove, turningCopy.remove(coordFrom));
-
-            if(checkForCheck(invertTurn(turn), waitingCopy, turningCopy)) {
-                it.remove();
-                if(isKing(currentPieceMove) && !castleConditions[KING]) {
-                    if(leftCellForKingUnderAttack(turn, possibleMove)) {
-                        cellsToRemove.add(leftCastleCellForKing(turn));
-                    }
-                    if(rightCellForKingUnderAttack(turn, possibleMove)) {
-                        cellsToRemove.add(rightCastleCellForKing(turn));
-                    }
-                }
-            }
-        }
-
-        possibleMoves.removeAll(cellsToRemove);
-        possibleMovesCache.addAll(possibleMoves);
-        return possibleMovesCache;
-    }
-
-    private String rightCastleCellForKing(Turn turn) {
-        return Turn.WHITE == turn? "g1" : "g8";
-    }
-
-    private String leftCastleCellForKing(Turn turn) {
-        return Turn.WHITE == turn? "c1" : "c8";
-    }
-
-    private String rightCellForKing(Turn turn) {
-        return Turn.WHITE == turn? "f1" : "f8";
-    }
-
-    private String leftCellForKing(Turn turn) {
-        return Turn.WHITE == turn? "d1" : "d8";
-    }
-
-    private String rightRookStartCell(Turn turn) {
-        return Turn.WHITE == turn? "h1" : "h8";
-    }
-
-    private String leftRookStartCell(Turn turn) {
-        return Turn.WHITE == turn? "a1" : "a8";
-    }
-
-    private String waitingRightRookStartCell(Turn turn) {
-        return Turn.WHITE == turn? "h8" : "h1";
-    }
-
-    private String waitingLeftRookStartCell(Turn turn) {
-        return Turn.WHITE == turn? "a8" : "a1";
-    }
-
-    private boolean rightCellForKingUnderAttack(Turn turn, String possibleMove) {
-        return possibleMove.equals(rightCellForKing(turn));
-    }
-
-    private boolean leftCellForKingUnderAttack(Turn turn, String possibleMove) {
-        return possibleMove.equals(leftCellForKing(turn));
-    }
-
-    private boolean[] resolveTurningCastleConditions(Turn turn) {
-        return Turn.WHITE == turn? whiteCastleConditions : blackCastleConditions;
-    }
-
-    private boolean[] resolveWaitingCastleConditions(Turn turn) {
-        return Turn.WHITE == turn? blackCastleConditions : whiteCastleConditions;
     }
 
-    private List<String> doGetPossibleMoves(Turn turn, String coordFrom, Map<String, String> turning, Map<String, String> waiting) {
-        String piece = resolveCurrentPiece(coordFrom, turning);
-        List<String> possibleMoves = new ArrayList<>();
-        if (isPawn(piece)) {
-            possibleMoves.addAll(pawnMovesSet(turn, coordFrom, turning, waiting));
-        } else if (isKnight(piece)) {
-            possibleMoves.addAll(knightMovesSet(coordFrom, turning, waiting));
-        } else if (isRook(piece)) {
-            possibleMoves.addAll(rookMovesSet(coordFrom, turning, waiting));
-        } else if (isBishop(piece)) {
-            possibleMoves.addAll(bishopMovesSet(coordFrom, turning, waiting));
-        } else if (isQueen(piece)) {
-            possibleMoves.addAll(queenMovesSet(coordFrom, turning, waiting));
-        } else if (isKing(piece)) {
-            possibleMoves.addAll(kingMovesSet(turn, coordFrom, turning, waiting));
+    private void ponder() {
+        if (ponderer != null && legalMovesCount > 0 && draw == null) {
+            ponderer.ponder(position);
         }
-
-        return possibleMoves;
     }
 
-    private List<String> pawnMovesSet(Turn turn, String coordFrom, Map<String, String> turning, Map<String, String> waiting) {
-        List<String> possibleMoves = new ArrayList<>();
-        possibleMoves.addAll(moveForPawn(resolvePawnMoveDirection(turn), coordFrom, turning, waiting));
-        possibleMoves.addAll(fightForPawn(resolvePawnFightDirections(turn), coordFrom, waiting));
-        return possibleMoves;
+    private void preparePiece(int square) {
+        listener.pieceAdded(square, position.pieceAt(square));
     }
 
-    private List<String> rookMovesSet(String coordFrom, Map<String, String> turning, Map<String, String> waiting) {
-        List<String> possibleMoves = new ArrayList<>();
-        possibleMoves.addAll(moves(Direction.UP, coordFrom, MAX, turning, waiting));
-        possibleMoves.addAll(moves(Direction.DOWN, coordFrom, MAX, turning, waiting));
-        possibleMoves.addAll(moves(Direction.LEFT, coordFrom, MAX, turning, waiting));
-        possibleMoves.addAll(moves(Direction.RIGHT, coordFrom, MAX, turning, waiting));
-        return possibleMoves;
+    public void setFrom(int square) {
+        coordFrom = square;
     }
 
-    private List<String> knightMovesSet(String coordFrom, Map<String, String> turning, Map<String, String> waiting) {
-        List<String> possibleMoves = new ArrayList<>();
-        int letter = coordLetterPosition(coordFrom);
-        int digit = coordDigitPosition(coordFrom);
+    /**
+     * Destinations of the piece being moved, one bit per square.
+     */
+    public long getPossibleMoves() {
+        return destinations[coordFrom];
+    }
 
-        for (int longPart : LONG_PART_OF_KNIGHT_MOVES) {
-            int newDigit = digit + longPart;
-            for (int shortPart : SHORT_PART_OF_KNIGHT_MOVES) {
-                int newLetter = letter + shortPart;
-                if (isWithinBoardNavigator(newLetter) && isWithinBoardNavigator(newDigit)) {
-                    String cellCoord = boardNavigator[newLetter][newDigit];
-                    if(hasPieceCollision(cellCoord, possibleMoves, turning, waiting)) {
-                        continue;
-                    }
-                    possibleMoves.add(cellCoord);
-                }
+    /**
+     * Destinations of the piece being moved where the exchange that follows loses material.
+     */
+    public long getLosingMoves() {
+        long losing = 0L;
+        for (long moves = destinations[coordFrom]; moves != 0; moves &= moves - 1) {
+            int to = first(moves);
+            if (position.see(coordFrom, to) < 0) {
+                losing |= bit(to);
             }
         }
-
-        for (int longPart : LONG_PART_OF_KNIGHT_MOVES) {
-            int newLetter = letter + longPart;
-            for (int shortPart : SHORT_PART_OF_KNIGHT_MOVES) {
-                int newDigit = digit + shortPart;
-                if (isWithinBoardNavigator(newLetter) && isWithinBoardNavigator(newDigit)) {
-                    String cellCoord = boardNavigator[newLetter][newDigit];
-                    if(hasPieceCollision(cellCoord, possibleMoves, turning, waiting)) {
-                        continue;
-                    }
-                    possibleMoves.add(cellCoord);
+        return losing;
+    }
+
+    /**
+     * Pieces of either side that the opponent can capture with a material gain.
+     */
+    public long getHangingPieces() {
+        long hanging = 0L;
+        long occupied = position.occupancy();
+        for (long pieces = occupied & ~position.pieces(Turn.WHITE, Pieces.KING) & ~position.pieces(Turn.BLACK, Pieces.KING);
+                pieces != 0; pieces &= pieces - 1) {
+            int square = first(pieces);
+            Turn opponent = invertTurn(Turn.values()[Pieces.colour(position.pieceAt(square))]);
+            for (long attackers = position.attackers(square, opponent, occupied); attackers != 0; attackers &= attackers - 1) {
+                if (position.see(first(attackers), square) > 0) {
+                    hanging |= bit(square);
+                    break;
                 }
             }
         }
-
-        return possibleMoves;
+        return hanging;
     }
 
-    private List<String> bishopMovesSet(String coordFrom, Map<String, String> turning, Map<String, String> waiting) {
-        List<String> possibleMoves = new ArrayList<>();
-        possibleMoves.addAll(moves(Direction.UP_LEFT, coordFrom, MAX, turning, waiting));
-        possibleMoves.addAll(moves(Direction.UP_RIGHT, coordFrom, MAX, turning, waiting));
-        possibleMoves.addAll(moves(Direction.DOWN_LEFT, coordFrom, MAX, turning, waiting));
-        possibleMoves.addAll(moves(Direction.DOWN_RIGHT, coordFrom, MAX, turning, waiting));
-        return possibleMoves;
+    public boolean isPossibleMove(int to) {
+        return contains(destinations[coordFrom], to);
     }
 
-    private List<String> queenMovesSet(String coordFrom, Map<String, String> turning, Map<String, String> waiting) {
-        List<String> possibleMoves = new ArrayList<>();
-        possibleMoves.addAll(moves(Direction.UP, coordFrom, MAX, turning, waiting));
-        possibleMoves.addAll(moves(Direction.DOWN, coordFrom, MAX, turning, waiting));
-        possibleMoves.addAll(moves(Direction.LEFT, coordFrom, MAX, turning, waiting));
-        possibleMoves.addAll(moves(Direction.RIGHT, coordFrom, MAX, turning, waiting));
-        possibleMoves.addAll(moves(Direction.UP_LEFT, coordFrom, MAX, turning, waiting));
-        possibleMoves.addAll(moves(Direction.UP_RIGHT, coordFrom, MAX, turning, waiting));
-        possibleMoves.addAll(moves(Direction.DOWN_LEFT, coordFrom, MAX, turning, waiting));
-        possibleMoves.addAll(moves(Direction.DOWN_RIGHT, coordFrom, MAX, turning, waiting));
-        return possibleMoves;
-    }
-
-    private List<String> kingMovesSet(Turn turn, String coordFrom, Map<String, String> turning, Map<String, String> waiting) {
-        List<String> possibleMoves = new ArrayList<>();
-        possibleMoves.addAll(moves(Direction.UP, coordFrom, 1, turning, waiting));
-        possibleMoves.addAll(moves(Direction.DOWN, coordFrom, 1, turning, waiting));
-        possibleMoves.addAll(moves(Direction.UP_LEFT, coordFrom, 1, turning, waiting));
-        possibleMoves.addAll(moves(Direction.UP_RIGHT, coordFrom, 1, turning, waiting));
-        possibleMoves.addAll(moves(Direction.DOWN_LEFT, coordFrom, 1, turning, waiting));
-        possibleMoves.addAll(moves(Direction.DOWN_RIGHT, coordFrom, 1, turning, waiting));
-
-        boolean[] castleCondition = resolveTurningCastleConditions(turn);
-        int leftMoves = !castleCondition[KING] && !castleCondition[LEFT_ROOK] && wayToLeftRookIsClear(turn, turning, waiting) && turn != underCheck? 2 : 1;
-        int rightMoves = !castleCondition[KING] && !castleCondition[RIGHT_ROOK] && wayToRightRookIsClear(turn, turning, waiting) && turn != underCheck? 2 : 1;
-        possibleMoves.addAll(moves(Direction.LEFT, coordFrom, leftMoves, turning, waiting));
-        possibleMoves.addAll(moves(Direction.RIGHT, coordFrom, rightMoves, turning, waiting));
-        return possibleMoves;
-    }
+    private void generateLegalMoves() {
+        if (!loadCachedMoves()) {
+            legalMovesCount = moveGenerator.generateMoves(position, legalMoves);
+            verdict = verdict(position);
+            for (int i = 0; i < legalMovesCount; ++i) {
+                cachedMoves[i] = PositionCache.encode(legalMoves[i]);
+            }
+            cache.store(position.getKey(), verdict, cachedMoves, legalMovesCount);
+        }
 
-    private boolean wayToRightRookIsClear(Turn turn, Map<String, String> turning, Map<String, String> waiting) {
-        return areEmpty(turning, waiting, wayToRightCastle(turn));
+        Arrays.fill(destinations, 0L);
+        for (int i = 0; i < legalMovesCount; ++i) {
+            destinations[Move.from(legalMoves[i])] |= bit(Move.to(legalMoves[i]));
+        }
     }
 
-    private boolean wayToLeftRookIsClear(Turn turn, Map<String, String> turning, Map<String, String> waiting) {
-        return areEmpty(turning, waiting, wayToLeftCastle(turn));
-    }
+    private boolean loadCachedMoves() {
+        int entry = cache.probe(position.getKey(), cachedMoves);
+        if (entry == PositionCache.MISS) {
+            return false;
+        }
 
-    private boolean areEmpty(Map<String, String> turning, Map<String, String> waiting, String ... cells) {
-        for(String cell : cells) {
-            if(turning.containsKey(cell) || waiting.containsKey(cell)) {
+        int count = PositionCache.count(entry);
+        long thisSide = position.occupancy(position.getTurn());
+        for (int i = 0; i < count; ++i) {
+            int from = PositionCache.from(cachedMoves[i]);
+            int to = PositionCache.to(cachedMoves[i]);
+            // a key collision with some other position shows up as moves that cannot be made here
+            if (!contains(thisSide, from) || contains(thisSide, to)) {
                 return false;
             }
+            legalMoves[i] = moveGenerator.toMove(position, from, to, PositionCache.promotion(cachedMoves[i]));
         }
+        legalMovesCount = count;
+        verdict = PositionCache.verdict(entry);
         return true;
     }
 
-    private String[] wayToLeftCastle(Turn turn) {
-        return Turn.WHITE == turn? new String[] {"b1", "c1", "d1"} : new String[] {"b8", "c8", "d8"};
+    public int getLegalMovesCount() {
+        return legalMovesCount;
     }
 
-    private String[] wayToRightCastle(Turn turn) {
-        return Turn.WHITE == turn? new String[] {"f1", "g1"} : new String[] {"f8", "g8"};
+    public int getLegalMove(int index) {
+        return legalMoves[index];
     }
 
-    // -------------------------------------------------- //
+    public Turn getTurn() {
+        return position.getTurn();
+    }
 
-    private List<String> moves(Direction direction, String coordFrom, int cellsCount, Map<String, String> turning, Map<String, String> waiting) {
-        List<String> possibleMoves = new ArrayList<>();
-        int letter = coordLetterPosition(coordFrom);
-        int digit = coordDigitPosition(coordFrom);
-        for (int i = 0; i < cellsCount; ++i) {
-            letter = resolveHorizontalDelta(direction, letter);
-            digit = resolveVerticalDelta(direction, digit);
-            if (isWithinBoardNavigator(letter) && isWithinBoardNavigator(digit)) {
-                String cellCoord = boardNavigator[letter][digit];
-                if (hasPieceCollision(cellCoord, possibleMoves, turning, waiting)) {
-                    break;
-                }
-                possibleMoves.add(cellCoord);
+    public int findMove(int from, int to, int promotion) {
+        for (int i = 0; i < legalMovesCount; ++i) {
+            int move = legalMoves[i];
+            if (Move.from(move) == from && Move.to(move) == to && Move.promotion(move) == promotion) {
+                return move;
             }
         }
-        return possibleMoves;
+        return Move.NONE;
     }
 
-    private boolean hasPieceCollision(String cellCoord, List<String> possibleMoves, Map<String, String> turning, Map<String, String> waiting) {
-
-        if (turning.containsKey(cellCoord)) {
-            return true;
-        }
-
-        if (waiting.containsKey(cellCoord)) {
-            possibleMoves.add(cellCoord);
-            return true;
-        }
-
-        return false;
+    private int rightCastleCellForKing(Turn turn) {
+        return Turn.WHITE == turn? G1 : G8;
     }
 
-    private List<String> moveForPawn(Direction direction, String coordFrom, Map<String, String> white, Map<String, String> black) {
-        List<String> possibleMoves = new ArrayList<>();
-
-        int letter = coordLetterPosition(coordFrom);
-        int digit = coordDigitPosition(coordFrom);
-
-        int cellsCount = pawnsMoveCells(digit, direction);
-
-        for (int i = 0; i < cellsCount; ++i) {
-            digit = resolveVerticalDelta(direction, digit);
-            if (isWithinBoardNavigator(digit)) {
-                String cellCoord = boardNavigator[letter][digit];
-                if (white.containsKey(cellCoord) || black.containsKey(cellCoord)) {
-                    break;
-                }
-                possibleMoves.add(cellCoord);
-            }
-        }
-        return possibleMoves;
-    }
-
-    private List<String> fightForPawn(List<Direction> directions, String coordFrom, Map<String, String> thatSide) {
-        List<String> possibleMoves = new ArrayList<>();
-        for(Direction direction : directions) {
-            int digit = resolveVerticalDelta(direction, coordDigitPosition(coordFrom));
-            int letter = resolveHorizontalDelta(direction, coordLetterPosition(coordFrom));
-            if (isWithinBoardNavigator(letter) && isWithinBoardNavigator(digit)) {
-                String cellCoord = boardNavigator[letter][digit];
-                if (thatSide.containsKey(cellCoord) || cellCoord.equals(inPassantTargetCell)) {
-                    possibleMoves.add(cellCoord);
-                }
-            }
-        }
-        return possibleMoves;
+    private int leftCastleCellForKing(Turn turn) {
+        return Turn.WHITE == turn? C1 : C8;
     }
 
-    private boolean isWithinBoardNavigator(int digit) {
-        return digit >= 0 && digit <= 7;
+    private int rightCellForKing(Turn turn) {
+        return Turn.WHITE == turn? F1 : F8;
     }
 
-    private int coordLetterPosition(String coord) {
-        return coord.charAt(0) - 'a';
+    private int leftCellForKing(Turn turn) {
+        return Turn.WHITE == turn? D1 : D8;
     }
 
-    private int coordDigitPosition(String coord) {
-        return coord.charAt(1) - '1';
+    private int rightRookStartCell(Turn turn) {
+        return rightCastleCellForKing(turn) + 1;
     }
 
-    public void moveCompleted(String coordTo) {
-
-        Map<String, String> turning = resolveTurning();
-        Map<String, String> waiting = resolveWaiting();
-        boolean[] turningCastleCondition = resolveTurningCastleConditions(turn);
-        boolean[] waitingCastleCondition = resolveWaitingCastleConditions(turn);
-
-        if (coordTo.equals(inPassantTargetCell) && isPawn(currentPieceMove)) {
-            white.remove(inPassantPossibleVictim);
-            black.remove(inPassantPossibleVictim);
-            ui.removePiece(inPassantPossibleVictim);
-        }
+    private int leftRookStartCell(Turn turn) {
+        return leftCastleCellForKing(turn) - 2;
+    }
 
-        inPassantTargetCell = null;
-        inPassantPossibleVictim = null;
+    public boolean isPromotion(int to) {
+        return moveGenerator.isPromotion(position, coordFrom, to);
+    }
 
-        if (waiting.containsKey(coordTo)) {
-            waiting.remove(coordTo);
-            ui.removePiece(coordTo);
-            possibleDrawMovesCount = 0;
+    /**
+     * Moves the selected piece, returns false and leaves the game as it is when no legal
+     * move matches the destination and promotion.
+     */
+    public boolean moveCompleted(int to, int promotion) {
+        int move = findMove(coordFrom, to, promotion);
+        if (move == Move.NONE) {
+            return false;
         }
-        turning.put(coordTo, turning.remove(coordFrom));
-
-        if(isPawn(currentPieceMove)) {
-            possibleDrawMovesCount = 0;
-
-            if (pawnMadeDoubleMove(turn, coordFrom, coordTo)) {
-                inPassantTargetCell = formInPassantTargetCellCoord(turn, coordFrom);
-                inPassantPossibleVictim = coordTo;
-            }
+        makeMove(move);
+        return true;
+    }
 
-            if(isLastHorizontal(turn, coordTo)) {
+    public void makeMove(int move) {
 
-                String pieceName = ui.askForPwanPromotion(turn);
+        Turn turn = position.getTurn();
+        int from = Move.from(move);
+        int to = Move.to(move);
 
-                turning.put(coordTo, pieceName);
-                ui.removePiece(coordFrom);
-                ui.putNewPieceOnBoard(coordTo, pieceName);
-            }
+        if (Move.isInPassant(move)) {
+            listener.pieceRemoved(inPassantVictimCell(turn, to));
+        } else if (Move.isCapture(move)) {
+            listener.pieceRemoved(to);
         }
 
-        if(isKing(currentPieceMove)) {
-            if(!turningCastleCondition[KING]) {
-                turningCastleCondition[KING] = true;
-                if(rightCastleCellForKing(turn).equals(coordTo)) {
-                    turning.put(rightCellForKing(turn), turning.remove(rightRookStartCell(turn)));
-                    ui.move(rightRookStartCell(turn), rightCellForKing(turn));
-                }
-                if(leftCastleCellForKing(turn).equals(coordTo)) {
-                    turning.put(leftCellForKing(turn), turning.remove(leftRookStartCell(turn)));
-                    ui.move(leftRookStartCell(turn), leftCellForKing(turn));
-                }
-            }
+        if(Move.isPromotion(move)) {
+            listener.pieceRemoved(from);
+            listener.pieceAdded(to, Pieces.of(turn, Move.promotion(move)));
+        } else {
+            listener.pieceMoved(from, to);
         }
 
-        if(isRook(currentPieceMove)) {
-            if(!turningCastleCondition[LEFT_ROOK] && coordFrom.equals(leftRookStartCell(turn))) {
-                turningCastleCondition[LEFT_ROOK] = true;
+        if(Move.isCastle(move)) {
+            if(rightCastleCellForKing(turn) == to) {
+                listener.pieceMoved(rightRookStartCell(turn), rightCellForKing(turn));
             }
-            if(!turningCastleCondition[RIGHT_ROOK] && coordFrom.equals(rightRookStartCell(turn))) {
-                turningCastleCondition[RIGHT_ROOK] = true;
+            if(leftCastleCellForKing(turn) == to) {
+                listener.pieceMoved(leftRookStartCell(turn), leftCellForKing(turn));
             }
         }
 
-        if(waitingLeftRookStartCell(turn).contains(coordTo) && !waitingCastleCondition[LEFT_ROOK]) {
-            waitingCastleCondition[LEFT_ROOK] = true;
-        }
+        position.makeMove(move);
+        generateLegalMoves();
 
-        if(waitingRightRookStartCell(turn).contains(coordTo) && !waitingCastleCondition[RIGHT_ROOK]) {
-            waitingCastleCondition[RIGHT_ROOK] = true;
-        }
+        boolean hasValidMoves = legalMovesCount != 0;
 
-        if(checkForCheck(turn, turning, waiting)) {
-            underCheck = invertTurn(turn);
-            winner = turn;
-            for(String waitingPieceCoord : waiting.keySet()) {
-                List<String> possibleMoves = doGetPossibleMoves(underCheck, waitingPieceCoord, waiting, turning);
-                for(String possibleMove : possibleMoves) {
-                    Map<String, String> turningCopy = new LinkedHashMap<>(turning);
-                    Map<String, String> waitingCopy = new LinkedHashMap<>(waiting);
-                    if (turningCopy.containsKey(possibleMove)) {
-                        turningCopy.remove(possibleMove);
-                    }
-                    waitingCopy.put(possibleMove, waitingCopy.remove(waitingPieceCoord));
-                    if(!checkForCheck(turn, turningCopy, waitingCopy)) {
-                        winner = null;
-                    }
-                }
-            }
+        if((verdict & PositionCache.CHECK) != 0) {
+            underCheck = position.getTurn();
+            winner = hasValidMoves? null : turn;
         } else {
             underCheck = null;
-            ui.clearMessages();
+            listener.messagesCleared();
+            checkIfThereIsStalemate(hasValidMoves);
         }
 
         checkIfItsALongGame();
-        checkIfThereIsStalemate(turning, waiting);
         checkIfThereIsPositionRepeats();
         checkIfThereIsNotEnoughMaterial();
 
-        changeTurn();
-        possibleMovesCache.clear();
-    }
-
-    private void checkIfItsALongGame() {
-        if(possibleDrawMovesCount++ == LONG_GAME_MOVES_COUNT) {
-            draw = Draw.LONG_GAME;
-        }
-    }
-
-    private void checkIfThereIsStalemate(Map<String, String> turning, Map<String, String> waiting) {
-        if(noValidMoves(invertTurn(turn), waiting, turning)) {
-            draw = Draw.STALEMATE;
-        }
-    }
-
-    private void checkIfThereIsPositionRepeats() {
-        String boardSnapshot = createBoardSnapshot();
-
-        if(boardSnapshotsCount.containsKey(boardSnapshot)) {
-            int newCount = boardSnapshotsCount.get(boardSnapshot) + 1;
-            if(newCount == MAX_REPEAT_POSITION) {
-                draw = Draw.REPEAT_POSITION;
-            } else {
-                boardSnapshotsCount.put(boardSnapshot, newCount);
-            }
-        } else {
-            boardSnapshotsCount.put(boardSnapshot, 1);
-        }
-    }
-
-    private void checkIfThereIsNotEnoughMaterial() {
-        if(noPawns() &&
-           noQueens() &&
-           noRooks() &&
-           noBothBishops() &&
-           noBothKnights() &&
-           noOneBishopAndOneKnight()) {
-            draw = Draw.NO_ENOUGH_MATERIAL;
-        }
-    }
-
-    private String formInPassantTargetCellCoord(Turn turn, String coordFrom) {
-        return new String(new char[] { coordFrom.charAt(0), resolveInPassantTargetCell(turn) });
-    }
-
-    private char resolveInPassantTargetCell(Turn turn) {
-        return Turn.WHITE == turn? WHITE_IN_PASSANT_TARGET_CELL : BLACK_IN_PASSANT_TARGET_CELL;
-    }
-
-    private boolean pawnMadeDoubleMove(Turn turn, String coordFrom, String coordTo) {
-        if(coordDigitPosition(coordFrom) != resolveStartPawnRank(turn)) {
+        position.trimHistory();
+        listener.turnChanged(position.getTurn());
+        ponder();
+    }
+
+    /**
+     * Searches a copy of the current position on the computer player's thread, leaving the
+     * game untouched so the caller's thread stays free. The result is played with
+     * {@link #makeComputerMove(SearchResult)}.
+     */
+    public CompletableFuture<SearchResult> searchComputerMove(SearchLimits limits) {
+        if (ponderer != null) {
+            ponderer.stop();
+        }
+        if (computerPlayer == null) {
+            // most engines never search, e.g. batch workers and canvas boards
+            search = new Search();
+            computerPlayer = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "computer-player");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        Position root = new Position(position);
+        return CompletableFuture.supplyAsync(() -> search.search(root, limits), computerPlayer);
+    }
+
+    /**
+     * Plays the best move of a search, unless the game has moved on since and it is no
+     * longer legal. Returns whether the move was made.
+     */
+    public boolean makeComputerMove(SearchResult result) {
+        int move = result.getBestMove();
+        if (move == Move.NONE || move != findMove(Move.from(move), Move.to(move), Move.promotion(move))) {
             return false;
         }
-
-        if(Math.abs(coordDigitPosition(coordTo) - coordDigitPosition(coordFrom)) != 2) {
-            return false;
-        }
-
+        makeMove(move);
         return true;
     }
 
-    private int resolveStartPawnRank(Turn turn) {
-        return Turn.WHITE == turn? START_WHITE_PAWN_RANK : START_BLACK_PAWN_RANK;
-    }
-
-    private boolean noOneBishopAndOneKnight() {
-        return !((hasPiecesIn(white, this::isBishop, 1) && hasPiecesIn(white, this::isKnight, 1)) ||
-                 (hasPiecesIn(black, this::isBishop, 1) && hasPiecesIn(black, this::isKnight, 1)));
-    }
-
-    private boolean noBothKnights() {
-        return !(hasPiecesIn(white, this::isKnight, 2) || hasPiecesIn(black, this::isKnight, 2));
-    }
-
-    private boolean noBothBishops() {
-        return !(hasPiecesIn(white, this::isBishop, 2) || hasPiecesIn(black, this::isBishop, 2));
+    /**
+     * Material signature of the current position, see {@link Position#getMaterial()}.
+     */
+    public long getMaterial() {
+        return position.getMaterial();
     }
 
-    private boolean noRooks() {
-        return hasPiecesIn(white, this::isRook, 0) && hasPiecesIn(black, this::isRook, 0);
+    /**
+     * Static score of the current position in centipawns, positive when white is better.
+     */
+    public int getScore() {
+        return position.getScore();
     }
 
-    private boolean noQueens() {
-        return hasPiecesIn(white, this::isQueen, 0) && hasPiecesIn(black, this::isQueen, 0);
+    public PawnStructure getPawnStructure() {
+        return PawnHashTable.shared().get(position);
     }
 
-    private boolean noPawns() {
-        return hasPiecesIn(white, this::isPawn, 0) && hasPiecesIn(black, this::isPawn, 0);
-    }
-
-    private boolean hasPiecesIn(Map<String, String> side, Predicate<String> pieceType, int targetCount) {
-        int count = 0;
-        for(String pieceName : side.values()) {
-            if(pieceType.test(pieceName)) {
-                count++;
-            }
-        }
-        return targetCount == count;
-    }
-
-    private String createBoardSnapshot() {
-
-        StringBuilder sb = new StringBuilder();
-        for (int col = 0; col < Constants.BOARD_WIDTH; ++col) {
-            for (int row = 0; row < Constants.BOARD_HEIGHT; ++row) {
-                String coord = new String(new char[] { (char) ('a' + col), (char) ('1' + row) });
-
-                String pieceName = white.get(coord);
-                if(pieceName == null) {
-                    pieceName = black.get(coord);
-                }
-
-                sb.append(pieceName == null? SNAPSHOT_EMPTY_CELL : pieceName);
-            }
-        }
-
-        return sb.toString();
-    }
-
-    private boolean noValidMoves(Turn turn, Map<String, String> thisSide, Map<String, String> thatSide) {
-
-        for(String pieceCoord : thisSide.keySet()) {
-            List<String> possibleMoves = doGetPossibleMoves(turn, pieceCoord, thisSide, thatSide);
-
-            for(String possibleMove : possibleMoves) {
-                Map<String, String> thisSideCopy = new LinkedHashMap<>(thisSide);
-                Map<String, String> thatSideCopy = new LinkedHashMap<>(thatSide);
-
-                if (thatSideCopy.containsKey(possibleMove)) {
-                    thatSideCopy.remove(possibleMove);
-                }
-                thisSideCopy.put(possibleMove, thisSideCopy.remove(pieceCoord));
-
-                if (!checkForCheck(turn, thatSideCopy, thisSideCopy)) {
-                    return false;
-                }
-            }
+    private void checkIfItsALongGame() {
+        if(position.getPossibleDrawMovesCount() >= LONG_GAME_MOVES_COUNT) {
+            draw = Draw.LONG_GAME;
         }
-
-        return true;
     }
 
-    private boolean isLastHorizontal(Turn turn, String coordTo) {
-        char lastHorizontal = (Turn.WHITE == turn)? '8' : '1';
-        return coordTo.charAt(1) == lastHorizontal;
-    }
-
-    private boolean checkForCheck(Turn turn, Map<String, String> attackingSide, Map<String, String> defendingSide) {
-        String defendingKingCoord = null;
-        for (String defendingPieceCoord : defendingSide.keySet()) {
-            String defendingPiece = defendingSide.get(defendingPieceCoord);
-            if (isKing(defendingPiece)) {
-                defendingKingCoord = defendingPieceCoord;
-                break;
-            }
+    private void checkIfThereIsStalemate(boolean hasValidMoves) {
+        if(!hasValidMoves) {
+            draw = Draw.STALEMATE;
         }
-
-        return isCellIsUnderAttack(turn, attackingSide, defendingSide, defendingKingCoord);
     }
 
-    private boolean isCellIsUnderAttack(Turn turn, Map<String, String> attackingSide, Map<String, String> defendingSide, String coordToCheck) {
-        for (String attackingPiece : attackingSide.keySet()) {
-            List<String> possibleMoves = doGetPossibleMoves(turn, attackingPiece, attackingSide, defendingSide);
-            if (possibleMoves.contains(coordToCheck)) {
-                return true;
-            }
+    private void checkIfThereIsPositionRepeats() {
+        if(position.countRepetitions() + 1 >= MAX_REPEAT_POSITION) {
+            draw = Draw.REPEAT_POSITION;
         }
-
-        return false;
-    }
-
-    private Direction resolvePawnMoveDirection(Turn turn) {
-        return pawnMoveDirections.get(turn);
     }
 
-    private List<Direction> resolvePawnFightDirections(Turn turn) {
-        return pawnFightDirections.get(turn);
-    }
-
-    private int pawnsMoveCells(int digit, Direction direction) {
-        if(Direction.UP == direction && digit == START_WHITE_PAWN_RANK) {
-            return 2;
-        }
-
-        if(Direction.DOWN == direction && digit == START_BLACK_PAWN_RANK) {
-            return 2;
+    private void checkIfThereIsNotEnoughMaterial() {
+        if((verdict & PositionCache.NOT_ENOUGH_MATERIAL) != 0) {
+            draw = Draw.NO_ENOUGH_MATERIAL;
         }
-
-        return 1;
     }
 
-    private int resolveVerticalDelta(Direction direction, int digit) {
-        return direction.getDy() + digit;
+    static int verdict(Position position) {
+        return (position.isUnderCheck(position.getTurn())? PositionCache.CHECK : 0)
+             | (position.isNotEnoughMaterial()? PositionCache.NOT_ENOUGH_MATERIAL : 0);
     }
 
-    private int resolveHorizontalDelta(Direction direction, int letter) {
-        return direction.getDx() + letter;
-    }
-
-    private Map<String, String> resolveTurning() {
-        return Turn.WHITE == turn? white : black;
-    }
-
-    private Map<String, String> resolveWaiting() {
-        return Turn.WHITE == turn? black : white;
-    }
-
-    private String resolveCurrentPiece(String coordFrom, Map<String, String> turning) {
-        return turning.get(coordFrom);
-    }
-
-    private void changeTurn() {
-        turn = invertTurn(turn);
-        ui.setTurn(turn);
+    private int inPassantVictimCell(Turn turn, int inPassantTargetCell) {
+        return Turn.WHITE == turn? inPassantTargetCell - 8 : inPassantTargetCell + 8;
     }
 
     private Turn invertTurn(Turn turn) {
         return  (Turn.WHITE == turn)? Turn.BLACK : Turn.WHITE;
     }
 
-    public void clearCaches() {
-        possibleMovesCache.clear();
-    }
-
     public boolean isDraw() {
         return draw != null;
     }
@@ -788,39 +460,15 @@ public class ChessEngine {
         return winner;
     }
 
-    private boolean isPawn(String piece) {
-        return piece.endsWith("P");
-    }
-
-    private boolean isRook(String piece) {
-        return piece.endsWith("R");
-    }
-
-    private boolean isKnight(String piece) {
-        return piece.endsWith("N");
-    }
-
-    private boolean isBishop(String piece) {
-        return piece.endsWith("B");
-    }
-
-    private boolean isQueen(String piece) {
-        return piece.endsWith("Q");
-    }
-
-    private boolean isKing(String piece) {
-        return piece.endsWith("K");
-    }
-
     public boolean isInCheckState() {
         return underCheck != null;
     }
 
-    private void removePieces(Map<String, String> team) {
-        for(String pieceCoord : team.keySet()) {
-            ui.removePiece(pieceCoord);
+    private void removePieces() {
+        for(long occupied = position.occupancy(); occupied != 0; occupied &= occupied - 1) {
+            listener.pieceRemoved(first(occupied));
         }
-        team.clear();
+        position.clear();
     }
 
     public Turn getAttackedSide() {
@@ -850,6 +498,7 @@ public class ChessEngine {
 
     public void loadGame(File selectedFile) {
         GameState state = fileManager.load(selectedFile.getAbsolutePath());
+        cache.newGeneration();
         doStartGame(state);
     }
 
@@ -858,14 +507,18 @@ public class ChessEngine {
     }
 
     private GameState getGameState() {
-        GameState state = new GameState(turn);
+        GameState state = new GameState(position.getTurn());
         state.setUnderCheck(underCheck);
-        state.setPossibleDrawMovesCount(possibleDrawMovesCount);
-        state.setWhite(white);
-        state.setBlack(black);
-        state.setWhiteCastleConditions(whiteCastleConditions);
-        state.setBlackCastleConditions(blackCastleConditions);
-        state.setSnapshots(boardSnapshotsCount);
+        state.setPossibleDrawMovesCount(position.getPossibleDrawMovesCount());
+        state.setInPassantTargetCell(position.getInPassantTargetCell() == Bitboards.NO_SQUARE? null : coord(position.getInPassantTargetCell()));
+        state.setWhite(position.getTeam(Turn.WHITE));
+        state.setBlack(position.getTeam(Turn.BLACK));
+        state.setWhiteCastleConditions(position.getCastleConditions(Turn.WHITE));
+        state.setBlackCastleConditions(position.getCastleConditions(Turn.BLACK));
+        state.setRepetitionKeys(position.getRepetitionKeys());
+        PawnStructure pawnStructure = getPawnStructure();
+        state.setWhitePawnStructure(pawnStructure.describe(Turn.WHITE));
+        state.setBlackPawnStructure(pawnStructure.describe(Turn.BLACK));
         return state;
     }
 }
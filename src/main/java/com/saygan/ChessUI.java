@@ -1,8 +1,9 @@
 package com.saygan;
 
-import static com.saygan.ChessUtils.coordToXy;
 import static com.saygan.ChessUtils.countCursorOffset;
 import static com.saygan.ChessUtils.isEven;
+import static com.saygan.ChessUtils.squareToX;
+import static com.saygan.ChessUtils.squareToY;
 import static com.saygan.Constants.BOARD_BORDER_PX;
 import static com.saygan.Constants.BOARD_HEIGHT;
 import static com.saygan.Constants.BOARD_HEIGHT_PX;
@@ -12,6 +13,9 @@ import static com.saygan.Constants.BOARD_WIDTH;
 import static com.saygan.Constants.BOARD_WIDTH_PX;
 import static com.saygan.Constants.BOTTOM;
 import static com.saygan.Constants.CELL_SIZE;
+import static com.saygan.Constants.EVALUATION_BAR;
+import static com.saygan.Constants.EVALUATION_BAR_RANGE;
+import static com.saygan.Constants.EVALUATION_BAR_WIDTH_PX;
 import static com.saygan.Constants.H_CENTER;
 import static com.saygan.Constants.V_CENTER;
 import static com.saygan.Constants.MESSAGE_AREA_SIZE;
@@ -22,26 +26,27 @@ import static com.saygan.Constants.UP;
 import static com.saygan.UIFactory.blackCell;
 import static com.saygan.UIFactory.createHorizontalCoordinateRuler;
 import static com.saygan.UIFactory.createVerticalCoordinateRuler;
-import static com.saygan.UIFactory.piece;
+import static com.saygan.UIFactory.hangingPieceFrame;
 import static com.saygan.UIFactory.possibleMoveDot;
 import static com.saygan.UIFactory.target;
 import static com.saygan.UIFactory.whiteCell;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.List;
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.Map;
-import java.util.Set;
+
+import com.saygan.analysis.PawnHashTable;
+import com.saygan.analysis.PawnStructure;
 
 import javafx.event.ActionEvent;
 import javafx.event.EventHandler;
+import javafx.geometry.Pos;
 import javafx.scene.Cursor;
 import javafx.scene.Node;
 import javafx.scene.Parent;
-import javafx.scene.Scene;
 import javafx.scene.control.Alert;
 import javafx.scene.control.ButtonType;
+import javafx.scene.control.CheckMenuItem;
 import javafx.scene.control.Menu;
 import javafx.scene.control.MenuBar;
 import javafx.scene.control.MenuItem;
@@ -64,42 +69,62 @@ import javafx.scene.layout.RowConstraints;
 import javafx.scene.layout.StackPane;
 import javafx.scene.paint.Color;
 import javafx.scene.shape.Circle;
+import javafx.scene.shape.Rectangle;
 import javafx.scene.shape.Shape;
 import javafx.stage.FileChooser;
 import javafx.stage.FileChooser.ExtensionFilter;
-import javafx.stage.Modality;
 import javafx.stage.Stage;
-import javafx.stage.StageStyle;
 
-public class ChessUI {
+public class ChessUI implements GameListener {
 
     private final Color LIGHT_GREY = new Color(0, 0, 0, 0.35);
+    private final Color LIGHT_RED = new Color(0.8, 0, 0, 0.55);
+    // fixed stacking of the pieces layer, nodes with a lower view order are drawn on top
+    private static final double MARKERS_VIEW_ORDER = 3;
+    private static final double PIECES_VIEW_ORDER = 2;
+    private static final double TARGET_VIEW_ORDER = 1;
+    private static final double MOVING_PIECE_VIEW_ORDER = 0;
     protected int dX;
     protected int dY;
     private BorderPane topLevelPane;
     protected GridPane boardLayoutGrid;
     protected Pane piecesLayer;
     protected Shape target;
-    protected String currentCoord;
-    protected String targetCoord;
-    protected Map<String, ImageView> pieces;
-    protected Set<ImageView> black;
-    protected Set<ImageView> white;
+    // the piece being dragged, the square it was picked up from and the square it would land on
+    protected ImageView movingPiece;
+    protected int currentSquare;
+    protected int targetSquare;
+    // piece nodes by square
+    protected ImageView[] pieces;
+    // squares of each side's pieces, and the side allowed to pick one up
+    private long[] occupancy;
+    private Turn turn;
+    private boolean thinking;
+    // nodes of captured or cleared pieces, reused for the next pieces put on the board
+    private Deque<ImageView> piecesPool;
     private FlowPane cellsLayer;
     private StackPane board;
-    private Map<String, Circle> possibleMovesMarkers;
+    // marker nodes by square, and the squares whose marker is currently shown
+    private Circle[] possibleMovesMarkers;
+    private Shape[] hangingPiecesMarkers;
+    private long shownMoves;
+    private long shownLosingMoves;
+    private long shownHangingPieces;
+    private Rectangle evaluation;
     private Node whiteMessage;
     private Node blackMessage;
 
     private ChessEngine engine;
+    private CheckMenuItem computerOpponent;
     private Map<String, EventHandler<MouseEvent>> eventHandlers;
     private Stage mainStage;
 
     public ChessUI(Map<String, EventHandler<MouseEvent>> eventHandlers) {
-        pieces = new HashMap<>();
-        black = new HashSet<>();
-        white = new HashSet<>();
-        possibleMovesMarkers = new HashMap<>();
+        pieces = new ImageView[Bitboards.SQUARES];
+        occupancy = new long[2];
+        piecesPool = new ArrayDeque<>();
+        possibleMovesMarkers = new Circle[Bitboards.SQUARES];
+        hangingPiecesMarkers = new Shape[Bitboards.SQUARES];
         this.eventHandlers = eventHandlers;
         prapareBoard();
     }
@@ -109,6 +134,7 @@ public class ChessUI {
         createMenu();
         createCoordinateRulers();
         createBoard();
+        createEvaluationBar();
     }
 
     private void createBoardLayoutGrid() {
@@ -124,6 +150,7 @@ public class ChessUI {
         boardLayoutGrid.getColumnConstraints().add(new ColumnConstraints(COORDINATE_RULER_SIZE));
         boardLayoutGrid.getColumnConstraints().add(new ColumnConstraints(BOARD_PLACE_HEIGHT_PX));
         boardLayoutGrid.getColumnConstraints().add(new ColumnConstraints(COORDINATE_RULER_SIZE));
+        boardLayoutGrid.getColumnConstraints().add(new ColumnConstraints(EVALUATION_BAR_WIDTH_PX));
     }
 
     private void createMenu() {
@@ -132,10 +159,11 @@ public class ChessUI {
         Menu menu = new Menu("Menu");
 
         MenuItem restart = new MenuItem("Restart");
+        computerOpponent = new CheckMenuItem("Play against computer");
         MenuItem exit = new MenuItem("Exit");
         restart.setOnAction(onRestart());
         exit.setOnAction(onExit());
-        menu.getItems().addAll(restart, exit);
+        menu.getItems().addAll(restart, computerOpponent, exit);
 
         Menu file = new Menu("File");
         MenuItem open = new MenuItem("Open");
@@ -144,7 +172,12 @@ public class ChessUI {
         save.setOnAction(onSaveFile());
         file.getItems().addAll(open, save);
 
-        menuBar.getMenus().addAll(menu, file);
+        Menu analysis = new Menu("Analysis");
+        MenuItem pawnStructure = new MenuItem("Pawn structure");
+        pawnStructure.setOnAction(onPawnStructure());
+        analysis.getItems().addAll(pawnStructure);
+
+        menuBar.getMenus().addAll(menu, file, analysis);
 
         topLevelPane = new BorderPane();
         topLevelPane.setTop(menuBar);
@@ -174,6 +207,19 @@ public class ChessUI {
         };
     }
 
+    private EventHandler<ActionEvent> onPawnStructure() {
+        return e -> {
+            PawnStructure structure = engine.getPawnStructure();
+            String text = "White\n" + structure.describe(Turn.WHITE).replace(' ', '\n').replace(":", ": ")
+                        + "\n\nBlack\n" + structure.describe(Turn.BLACK).replace(' ', '\n').replace(":", ": ")
+                        + "\n\nPawn table " + PawnHashTable.shared();
+            Alert alert = new Alert(AlertType.INFORMATION, text, ButtonType.OK);
+            alert.setTitle("Pawn structure");
+            alert.setHeaderText(null);
+            alert.showAndWait();
+        };
+    }
+
     private FileChooser getFileChooser(String title) {
         FileChooser fileChooser = new FileChooser();
         fileChooser.setTitle(title);
@@ -206,29 +252,62 @@ public class ChessUI {
                 Circle dot = possibleMoveDot();
                 dot.setCenterX(row * CELL_SIZE + CELL_SIZE / 2);
                 dot.setCenterY(col * CELL_SIZE + CELL_SIZE / 2);
+                dot.setViewOrder(MARKERS_VIEW_ORDER);
+                Shape frame = hangingPieceFrame();
+                frame.setLayoutX(row * CELL_SIZE);
+                frame.setLayoutY(col * CELL_SIZE);
+                frame.setViewOrder(MARKERS_VIEW_ORDER);
                 piecesLayer.getChildren().add(dot);
+                piecesLayer.getChildren().add(frame);
                 cellsLayer.getChildren().add(cell);
-                String coord = new String(new char[] { (char) ('a' + row), (char) ('1' + (7 - col)) });
-                possibleMovesMarkers.put(coord, dot);
+                int square = Bitboards.square(row, 7 - col);
+                possibleMovesMarkers[square] = dot;
+                hangingPiecesMarkers[square] = frame;
             }
         }
+        target = target();
+        target.setViewOrder(TARGET_VIEW_ORDER);
+        target.setVisible(false);
+        piecesLayer.getChildren().add(target);
+        piecesLayer.addEventHandler(MouseEvent.ANY, new BoardEventDispatcher(this, eventHandlers));
         board = new StackPane();
         board.getChildren().add(cellsLayer);
         board.getChildren().add(piecesLayer);
         boardLayoutGrid.add(board, H_CENTER, V_CENTER);
     }
 
-    protected void showPossibleMoves(List<String> possibleMoves) {
-        for (String coord : possibleMoves) {
-            possibleMovesMarkers.get(coord).setFill(LIGHT_GREY);
+    /**
+     * Marks the given destinations, only markers that change state or colour are touched.
+     */
+    protected void showPossibleMoves(long possibleMoves, long losingMoves) {
+        losingMoves &= possibleMoves;
+        long changed = (shownMoves ^ possibleMoves) | (shownLosingMoves ^ losingMoves);
+        for (long squares = changed; squares != 0; squares &= squares - 1) {
+            int square = Bitboards.first(squares);
+            Color fill = Color.TRANSPARENT;
+            if (Bitboards.contains(possibleMoves, square)) {
+                fill = Bitboards.contains(losingMoves, square)? LIGHT_RED : LIGHT_GREY;
+            }
+            possibleMovesMarkers[square].setFill(fill);
         }
+        shownMoves = possibleMoves;
+        shownLosingMoves = losingMoves;
     }
 
-    protected void hidePossibleMoves() {
-        for (Circle dot : possibleMovesMarkers.values()) {
-            dot.setFill(Color.TRANSPARENT);
-            dot.toBack();
+    protected void showHangingPieces(long hangingPieces) {
+        for (long squares = shownHangingPieces ^ hangingPieces; squares != 0; squares &= squares - 1) {
+            int square = Bitboards.first(squares);
+            hangingPiecesMarkers[square].setStroke(Bitboards.contains(hangingPieces, square)? LIGHT_RED : Color.TRANSPARENT);
         }
+        shownHangingPieces = hangingPieces;
+    }
+
+    protected void hideHangingPieces() {
+        showHangingPieces(0L);
+    }
+
+    protected void hidePossibleMoves() {
+        showPossibleMoves(0L, 0L);
     }
 
     protected void calculateCursorOffsets(double x, double y) {
@@ -236,89 +315,125 @@ public class ChessUI {
         dY = countCursorOffset(y);
     }
 
+    protected void startMoving(ImageView piece, int square) {
+        movingPiece = piece;
+        currentSquare = square;
+        piece.setViewOrder(MOVING_PIECE_VIEW_ORDER);
+    }
+
+    protected ImageView stopMoving() {
+        ImageView piece = movingPiece;
+        movingPiece = null;
+        piece.setViewOrder(PIECES_VIEW_ORDER);
+        return piece;
+    }
+
     protected void createMoveTarget() {
-        int[] xy = coordToXy(currentCoord);
-        targetCoord = currentCoord;
-        target = target();
-        target.setLayoutX(xy[0] + 2);
-        target.setLayoutY(xy[1] + 2);
-        piecesLayer.getChildren().add(target);
+        replaceMoveTarget(currentSquare);
+        target.setVisible(true);
     }
 
-    protected void replaceMoveTarget(String coord) {
-        targetCoord = coord;
-        int[] xy = coordToXy(targetCoord);
-        target.setLayoutX(xy[0] + 2);
-        target.setLayoutY(xy[1] + 2);
+    protected void replaceMoveTarget(int square) {
+        targetSquare = square;
+        target.setLayoutX(squareToX(square) + 2);
+        target.setLayoutY(squareToY(square) + 2);
     }
 
     protected void removeMoveTarget() {
-        piecesLayer.getChildren().remove(target);
+        target.setVisible(false);
     }
 
-    protected void putNewPieceOnBoard(String coord, String pieceName) {
-        ImageView piece = piece(pieceName);
-        int[] xy = coordToXy(coord);
-        piece.setX(xy[0]);
-        piece.setY(xy[1]);
-        piecesLayer.getChildren().add(piece);
-        pieces.put(coord, piece);
-        if (isWhite(pieceName)) {
-            white.add(piece);
+    protected void putNewPieceOnBoard(int square, int pieceType) {
+        ImageView piece = piecesPool.poll();
+        if (piece == null) {
+            piece = PieceSprites.of(CELL_SIZE).create(pieceType);
         } else {
-            black.add(piece);
+            PieceSprites.of(CELL_SIZE).show(piece, pieceType);
         }
+        piece.setX(squareToX(square));
+        piece.setY(squareToY(square));
+        piece.setViewOrder(PIECES_VIEW_ORDER);
+        piecesLayer.getChildren().add(piece);
+        pieces[square] = piece;
+        occupancy[Pieces.colour(pieceType)] |= Bitboards.bit(square);
+    }
+
+    @Override
+    public void pieceAdded(int square, int piece) {
+        putNewPieceOnBoard(square, piece);
+    }
+
+    @Override
+    public void pieceRemoved(int square) {
+        removePiece(square);
+    }
+
+    @Override
+    public void pieceMoved(int from, int to) {
+        move(from, to);
+    }
+
+    @Override
+    public void turnChanged(Turn turn) {
+        setTurn(turn);
+    }
+
+    @Override
+    public void checkDeclared(Turn attackedSide) {
+        declareCheck(attackedSide);
+    }
+
+    @Override
+    public void messagesCleared() {
+        clearMessages();
     }
 
     public Parent getRoot() {
         return topLevelPane;
     }
 
-    public void removePiece(String coordTo) {
-        ImageView piece = pieces.remove(coordTo);
-        white.remove(piece);
-        black.remove(piece);
+    public void removePiece(int square) {
+        ImageView piece = pieces[square];
+        pieces[square] = null;
+        long cleared = ~Bitboards.bit(square);
+        occupancy[Pieces.WHITE] &= cleared;
+        occupancy[Pieces.BLACK] &= cleared;
         piecesLayer.getChildren().remove(piece);
-    }
-
-    public void setTurn(Turn turn) {
-        if (Turn.WHITE == turn) {
-            deactivateSide(black);
-            activateSide(white);
-        } else if (Turn.BLACK == turn) {
-            deactivateSide(white);
-            activateSide(black);
+        if (piece != null) {
+            piecesPool.push(piece);
         }
     }
 
-    private void activateSide(Set<ImageView> pieces) {
-        for (ImageView piece : pieces) {
-            activatePiece(piece);
-        }
+    private void createEvaluationBar() {
+        Rectangle background = new Rectangle(EVALUATION_BAR_WIDTH_PX, BOARD_PLACE_HEIGHT_PX, Color.BLACK);
+        evaluation = new Rectangle(EVALUATION_BAR_WIDTH_PX, BOARD_PLACE_HEIGHT_PX / 2, Color.WHITE);
+        StackPane bar = new StackPane(background, evaluation);
+        StackPane.setAlignment(evaluation, Pos.BOTTOM_CENTER);
+        boardLayoutGrid.add(bar, EVALUATION_BAR, V_CENTER);
     }
 
-    private void deactivateSide(Set<ImageView> pieces) {
-        for (ImageView piece : pieces) {
-            deactivatePiece(piece);
-        }
+    // white's share of the bar grows with the score, clamped to EVALUATION_BAR_RANGE either way
+    private void updateEvaluationBar() {
+        int score = Math.max(-EVALUATION_BAR_RANGE, Math.min(EVALUATION_BAR_RANGE, engine.getScore()));
+        evaluation.setHeight(BOARD_PLACE_HEIGHT_PX * (score + EVALUATION_BAR_RANGE) / (2.0 * EVALUATION_BAR_RANGE));
     }
 
-    private void activatePiece(ImageView piece) {
-        piece.setCursor(Cursor.OPEN_HAND);
-        piece.addEventHandler(MouseEvent.MOUSE_PRESSED, eventHandlers.get("START"));
-        piece.addEventHandler(MouseEvent.MOUSE_RELEASED, eventHandlers.get("STOP"));
-        piece.addEventHandler(MouseEvent.MOUSE_DRAGGED, eventHandlers.get("MOVE"));
+    public void setTurn(Turn turn) {
+        if (engine != null) {
+            updateEvaluationBar();
+        }
+        this.turn = turn;
     }
 
-    private void deactivatePiece(ImageView piece) {
-        piece.setCursor(Cursor.DEFAULT);
-        piece.removeEventHandler(MouseEvent.MOUSE_PRESSED, eventHandlers.get("START"));
-        piece.removeEventHandler(MouseEvent.MOUSE_RELEASED, eventHandlers.get("STOP"));
-        piece.removeEventHandler(MouseEvent.MOUSE_DRAGGED, eventHandlers.get("MOVE"));
+    protected boolean isMovablePiece(int square) {
+        return !thinking && turn != null && Bitboards.contains(occupancy[turn.ordinal()], square);
     }
 
-    private boolean isWhite(String pieceNmae) {
-        return pieceNmae.startsWith("w");
+    /**
+     * Keeps pieces from being picked up while the computer is searching its reply.
+     */
+    protected void setThinking(boolean thinking) {
+        this.thinking = thinking;
     }
 
     public void clearMessages() {
@@ -355,38 +470,18 @@ public class ChessUI {
     }
 
     public String askForPwanPromotion(Turn turn) {
-
-        Stage stage = new Stage();
-        FlowPane root = new FlowPane();
-        List<String> pieceNameBox = new ArrayList<>();
-
-        for(char pieceName : "QRBN".toCharArray()) {
-            char color = turn == Turn.WHITE? 'w' : 'b';
-            String pieceFullName = new String(new char[] {color, pieceName});
-            Node piece = piece(pieceFullName);
-            root.getChildren().add(piece);
-            piece.setCursor(Cursor.OPEN_HAND);
-            piece.setOnMouseClicked(e -> {
-                pieceNameBox.add(pieceFullName);
-                stage.close();
-            });
-        }
-
-        stage.setTitle("Select promotion piece");
-        stage.initStyle(StageStyle.UNDECORATED);
-        stage.initModality(Modality.APPLICATION_MODAL);
-        stage.setScene(new Scene(root, 400, 100));
-        stage.showAndWait();
-
-        return pieceNameBox.iterator().next();
+        return UIFactory.askForPromotion(turn);
     }
 
-    public void move(String from, String to) {
-        ImageView piece = pieces.remove(from);
-        int xy[] = coordToXy(to);
-        piece.setX(xy[0]);
-        piece.setY(xy[1]);
-        pieces.put(to, piece);
+    public void move(int from, int to) {
+        ImageView piece = pieces[from];
+        pieces[from] = null;
+        piece.setX(squareToX(to));
+        piece.setY(squareToY(to));
+        pieces[to] = piece;
+        long fromBit = Bitboards.bit(from);
+        int side = (occupancy[Pieces.WHITE] & fromBit) != 0? Pieces.WHITE : Pieces.BLACK;
+        occupancy[side] = (occupancy[side] & ~fromBit) | Bitboards.bit(to);
     }
 
     public void declareDraw(Draw draw) {
@@ -404,6 +499,10 @@ public class ChessUI {
              .ifPresent(button -> System.exit(0));
     }
 
+    public boolean isComputerOpponent() {
+        return computerOpponent.isSelected();
+    }
+
     public void setEngine(ChessEngine engine) {
         this.engine = engine;
     }
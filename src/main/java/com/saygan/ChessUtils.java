@@ -3,8 +3,6 @@ package com.saygan;
 import static com.saygan.Constants.BOARD_HEIGHT_PX;
 import static com.saygan.Constants.BOARD_WIDTH_PX;
 import static com.saygan.Constants.CELL_SIZE;
-import static com.saygan.Constants.FIRST_HORIZONTAL_COORD;
-import static com.saygan.Constants.LAST_VERTICAL_COORD;
 
 public class ChessUtils {
 
@@ -36,13 +34,15 @@ public class ChessUtils {
         return (int) (d % CELL_SIZE);
     }
 
-    public static int[] coordToXy(String coord) {
-        return new int[] { (coord.charAt(0) - FIRST_HORIZONTAL_COORD) * CELL_SIZE, (LAST_VERTICAL_COORD - coord.charAt(1)) * CELL_SIZE};
+    public static int xyToSquare(double x, double y) {
+        return Bitboards.square((int) (x / CELL_SIZE), 7 - (int) (y / CELL_SIZE));
     }
 
-    public static String xyToCoord(double x, double y) {
-        char hCoord = (char)(FIRST_HORIZONTAL_COORD + (int)(x / CELL_SIZE));
-        char vCoord = (char)(LAST_VERTICAL_COORD - (int)(y / CELL_SIZE));
-        return new String(new char[] {hCoord, vCoord});
+    public static int squareToX(int square) {
+        return Bitboards.file(square) * CELL_SIZE;
+    }
+
+    public static int squareToY(int square) {
+        return (7 - Bitboards.rank(square)) * CELL_SIZE;
     }
 }
@@ -15,6 +15,9 @@ public class Constants {
     static final int BOARD_HEIGHT_PX = BOARD_HEIGHT * CELL_SIZE;
     static final int BOARD_PLACE_WIDTH_PX = BOARD_WIDTH_PX + 2 * BOARD_BORDER_PX;
     static final int BOARD_PLACE_HEIGHT_PX = BOARD_HEIGHT_PX + 2 * BOARD_BORDER_PX;
+    static final int EVALUATION_BAR_WIDTH_PX = 16;
+    // score in centipawns that fills the evaluation bar for one side
+    static final int EVALUATION_BAR_RANGE = 1000;
 
     static final int SINGLE_ROW = 0;
     static final int SINGLE_COL = 0;
@@ -24,4 +27,5 @@ public class Constants {
     static final int V_CENTER = 2;
     static final int BOTTOM = 3;
     static final int RIGHT = 2;
+    static final int EVALUATION_BAR = 3;
 }
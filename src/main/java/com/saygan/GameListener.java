@@ -0,0 +1,28 @@
+package com.saygan;
+
+/**
+ * Receives the board changes the engine makes, in the order it makes them.
+ * Every method does nothing by default, so a listener overrides only what it shows.
+ */
+public interface GameListener {
+
+    GameListener NONE = new GameListener() {};
+
+    default void pieceAdded(int square, int piece) {
+    }
+
+    default void pieceRemoved(int square) {
+    }
+
+    default void pieceMoved(int from, int to) {
+    }
+
+    default void turnChanged(Turn turn) {
+    }
+
+    default void checkDeclared(Turn attackedSide) {
+    }
+
+    default void messagesCleared() {
+    }
+}
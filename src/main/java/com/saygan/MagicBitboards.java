@@ -0,0 +1,142 @@
+package com.saygan;
+
+import static com.saygan.Bitboards.SQUARES;
+import static com.saygan.Bitboards.bit;
+import static com.saygan.Bitboards.file;
+import static com.saygan.Bitboards.rank;
+import static com.saygan.Bitboards.square;
+
+public class MagicBitboards {
+
+    private static final Direction[] ROOK_DIRECTIONS = new Direction[] {
+        Direction.UP, Direction.RIGHT, Direction.DOWN, Direction.LEFT
+    };
+    private static final Direction[] BISHOP_DIRECTIONS = new Direction[] {
+        Direction.UP_RIGHT, Direction.DOWN_RIGHT, Direction.DOWN_LEFT, Direction.UP_LEFT
+    };
+
+    private static final long[] ROOK_MASKS = new long[SQUARES];
+    // found once by a seeded random search; init only verifies them and fills the tables
+    private static final long[] ROOK_MAGICS = new long[] {
+        0x0180_0440_0422_1080L, 0x0C40_0810_0020_0042L, 0x0680_1000_8060_0018L, 0x0200_0422_0010_0940L,
+        0x0280_0800_0204_0080L, 0x0100_0802_0400_0100L, 0x1080_0200_0100_0080L, 0x0200_0080_4902_0024L,
+        0x0003_8000_4000_8130L, 0x2809_4000_2000_5002L, 0x0001_0020_0440_1501L, 0x0000_8010_0008_0084L,
+        0x1001_8004_0108_0081L, 0x0908_8064_0080_0200L, 0xA091_0001_0014_1200L, 0x0022_0001_0082_0044L,
+        0x2501_0100_2040_8000L, 0x0100_8480_2000_4000L, 0x0000_8480_1000_2000L, 0x0010_0080_0800_8010L,
+        0x0201_1100_0801_0004L, 0x4000_0801_0440_2010L, 0x6004_0400_4142_0810L, 0x8060_0200_0080_610CL,
+        0x0180_8024_8000_4009L, 0x8002_0102_0030_8040L, 0x0460_2000_8010_0080L, 0x8000_0800_8080_1000L,
+        0x0018_0200_4040_0400L, 0x0C02_0004_0400_1020L, 0x2008_4214_0008_1021L, 0x0212_0106_0008_4084L,
+        0x2980_8040_0080_0024L, 0x2801_0040_0100_2080L, 0x2B42_0040_2200_1080L, 0x1208_8008_0080_1000L,
+        0x2020_0800_6500_1100L, 0x2000_8004_0080_0200L, 0x4881_0004_0300_0600L, 0x8004_2100_8600_0444L,
+        0x0002_0081_0042_0020L, 0x0010_0020_0040_4000L, 0x0300_8200_1042_0020L, 0x0006_0020_4012_000CL,
+        0x0404_0008_0004_8080L, 0x4004_0400_0200_8080L, 0x2022_0402_0001_0100L, 0x8020_0080_4102_0004L,
+        0x1005_0020_8000_4300L, 0x0000_4008_2081_0500L, 0x048A_1300_2000_4100L, 0x0008_2110_0089_0300L,
+        0x0200_0400_0800_8080L, 0x0000_0400_8002_0080L, 0x0004_A810_011A_4400L, 0x0800_8001_0000_4080L,
+        0x4404_10A1_0208_4082L, 0x0009_0482_0022_5042L, 0x1280_0900_4010_2001L, 0x8001_0821_0005_1001L,
+        0x1031_0010_0204_0801L, 0x0201_0008_1400_0203L, 0x0014_5008_0102_0084L, 0x2001_5048_E081_0402L
+    };
+    private static final int[] ROOK_SHIFTS = new int[SQUARES];
+    private static final long[][] ROOK_ATTACKS = new long[SQUARES][];
+
+    private static final long[] BISHOP_MASKS = new long[SQUARES];
+    private static final long[] BISHOP_MAGICS = new long[] {
+        0x0020_0481_0801_0014L, 0x0010_0112_0408_4A10L, 0x0004_8800_9100_0040L, 0x0A08_2042_4001_1221L,
+        0x0004_0420_0004_8810L, 0x000A_0211_0440_1110L, 0x0804_4404_A008_0A06L, 0x8B00_4100_4150_4001L,
+        0x0160_4210_1A00_8B00L, 0x4082_0208_8104_0080L, 0x0800_1090_8208_4080L, 0x0A00_0410_4204_0000L,
+        0x8000_0202_1000_0830L, 0x0050_0090_0420_1008L, 0x0000_0208_2104_10A0L, 0x0906_0041_0C10_1200L,
+        0x0008_04D2_1010_4490L, 0x0004_2008_4184_0C00L, 0x4030_104A_4102_4100L, 0x2400_9008_0200_4208L,
+        0x0404_0002_00A2_1101L, 0x0241_0000_80A0_0100L, 0x0204_2810_8211_1002L, 0x1082_0001_D904_8808L,
+        0x0085_1008_44A0_0808L, 0x0010_2808_0401_A400L, 0x6840_B001_0808_8860L, 0x1000_8080_0802_0500L,
+        0x0080_8401_3080_2005L, 0x2110_0881_8100_8080L, 0x1018_0088_1202_0110L, 0x0150_8509_5080_4800L,
+        0x0010_4484_1010_1016L, 0x0001_0860_2008_0104L, 0x1204_0028_0A04_1042L, 0x1020_4008_2106_0200L,
+        0x0040_0100_4084_0404L, 0x0010_1040_40B6_0110L, 0x0004_080A_0400_5100L, 0x8008_0080_8015_004BL,
+        0x1808_0818_04E4_2810L, 0x0001_0908_2208_2000L, 0x0127_2014_0200_1020L, 0x00C0_0842_0800_0080L,
+        0x2001_0841_0400_2040L, 0x3001_5001_0200_0040L, 0x4002_1204_0C08_0503L, 0x0012_0801_1430_1100L,
+        0x0B04_2E01_0420_0010L, 0x0050_4C02_0802_1050L, 0x0250_2284_0426_0000L, 0x0000_0142_2088_1202L,
+        0x0012_8410_0208_8400L, 0x4000_1202_5039_0122L, 0x0040_1001_8101_0800L, 0x0010_0108_2100_5140L,
+        0x0002_0104_0082_A840L, 0x8080_0600_8248_4203L, 0x0600_2011_0098_9042L, 0x0200_0010_C084_0402L,
+        0x1000_0800_8810_3400L, 0x4010_82A0_6002_3080L, 0x2007_04A1_0444_0083L, 0x0030_2408_8084_0100L
+    };
+    private static final int[] BISHOP_SHIFTS = new int[SQUARES];
+    private static final long[][] BISHOP_ATTACKS = new long[SQUARES][];
+
+    static {
+        for (int square = 0; square < SQUARES; ++square) {
+            init(square, ROOK_DIRECTIONS, ROOK_MASKS, ROOK_MAGICS, ROOK_SHIFTS, ROOK_ATTACKS);
+            init(square, BISHOP_DIRECTIONS, BISHOP_MASKS, BISHOP_MAGICS, BISHOP_SHIFTS, BISHOP_ATTACKS);
+        }
+    }
+
+    public static long rookAttacks(int square, long occupied) {
+        return ROOK_ATTACKS[square][(int) (((occupied & ROOK_MASKS[square]) * ROOK_MAGICS[square]) >>> ROOK_SHIFTS[square])];
+    }
+
+    public static long bishopAttacks(int square, long occupied) {
+        return BISHOP_ATTACKS[square][(int) (((occupied & BISHOP_MASKS[square]) * BISHOP_MAGICS[square]) >>> BISHOP_SHIFTS[square])];
+    }
+
+    public static long queenAttacks(int square, long occupied) {
+        return rookAttacks(square, occupied) | bishopAttacks(square, occupied);
+    }
+
+    private static void init(int square, Direction[] directions, long[] masks, long[] magics, int[] shifts,
+                             long[][] attacks) {
+        long mask = relevantOccupancy(square, directions);
+        int bits = Long.bitCount(mask);
+        long[] table = new long[1 << bits];
+        boolean[] filled = new boolean[table.length];
+
+        long occupied = 0L;
+        do {
+            long reference = slidingAttacks(square, occupied, directions);
+            int index = (int) ((occupied * magics[square]) >>> (64 - bits));
+            if (filled[index] && table[index] != reference) {
+                throw new IllegalStateException("Magic number collision on " + Bitboards.coord(square));
+            }
+            filled[index] = true;
+            table[index] = reference;
+            occupied = (occupied - mask) & mask;
+        } while (occupied != 0);
+
+        masks[square] = mask;
+        shifts[square] = 64 - bits;
+        attacks[square] = table;
+    }
+
+    private static long relevantOccupancy(int square, Direction[] directions) {
+        long mask = 0L;
+        for (Direction direction : directions) {
+            int letter = file(square) + direction.getDx();
+            int digit = rank(square) + direction.getDy();
+            // the last cell of a ray never blocks anything behind it, so it is left out of the key
+            while (isInside(letter + direction.getDx(), digit + direction.getDy())) {
+                mask |= bit(square(letter, digit));
+                letter += direction.getDx();
+                digit += direction.getDy();
+            }
+        }
+        return mask;
+    }
+
+    private static long slidingAttacks(int square, long occupied, Direction[] directions) {
+        long attacks = 0L;
+        for (Direction direction : directions) {
+            int letter = file(square) + direction.getDx();
+            int digit = rank(square) + direction.getDy();
+            while (isInside(letter, digit)) {
+                long cell = bit(square(letter, digit));
+                attacks |= cell;
+                if ((cell & occupied) != 0) {
+                    break;
+                }
+                letter += direction.getDx();
+                digit += direction.getDy();
+            }
+        }
+        return attacks;
+    }
+
+    private static boolean isInside(int letter, int digit) {
+        return letter >= 0 && letter < 8 && digit >= 0 && digit < 8;
+    }
+}
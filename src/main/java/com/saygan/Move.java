@@ -0,0 +1,78 @@
+package com.saygan;
+
+import static com.saygan.Bitboards.coord;
+
+/**
+ * A move packed into an int: from (bits 0-5), to (6-11), moved piece (12-15),
+ * captured piece + 1 (16-19), promotion type + 1 (20-23) and flags from bit 24.
+ * A real move always has from != to, so 0 is free to mean no move.
+ */
+public class Move {
+
+    public static final int NONE = 0;
+
+    public static final int IN_PASSANT = 1 << 24;
+    public static final int CASTLE = 1 << 25;
+    public static final int DOUBLE_PUSH = 1 << 26;
+
+    public static final int MAX_MOVES = 256;
+
+    private static final String PROMOTION_NAMES = "pnbrqk";
+
+    public static int of(int from, int to, int piece, int captured, int promotion, int flags) {
+        return from
+             | (to << 6)
+             | (piece << 12)
+             | ((captured + 1) << 16)
+             | ((promotion + 1) << 20)
+             | flags;
+    }
+
+    public static int from(int move) {
+        return move & 63;
+    }
+
+    public static int to(int move) {
+        return (move >>> 6) & 63;
+    }
+
+    public static int piece(int move) {
+        return (move >>> 12) & 15;
+    }
+
+    public static int captured(int move) {
+        return ((move >>> 16) & 15) - 1;
+    }
+
+    public static int promotion(int move) {
+        return ((move >>> 20) & 15) - 1;
+    }
+
+    public static boolean isCapture(int move) {
+        return (move & (15 << 16)) != 0;
+    }
+
+    public static boolean isPromotion(int move) {
+        return (move & (15 << 20)) != 0;
+    }
+
+    public static boolean isInPassant(int move) {
+        return (move & IN_PASSANT) != 0;
+    }
+
+    public static boolean isCastle(int move) {
+        return (move & CASTLE) != 0;
+    }
+
+    public static boolean isDoublePush(int move) {
+        return (move & DOUBLE_PUSH) != 0;
+    }
+
+    /**
+     * Long algebraic form, e.g. "e2e4" or "e7e8q".
+     */
+    public static String name(int move) {
+        String name = coord(from(move)) + coord(to(move));
+        return isPromotion(move)? name + PROMOTION_NAMES.charAt(promotion(move)) : name;
+    }
+}
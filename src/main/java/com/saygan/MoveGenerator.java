@@ -0,0 +1,363 @@
+package com.saygan;
+
+import static com.saygan.Bitboards.NO_SQUARE;
+import static com.saygan.Bitboards.SQUARES;
+import static com.saygan.Bitboards.bit;
+import static com.saygan.Bitboards.between;
+import static com.saygan.Bitboards.bits;
+import static com.saygan.Bitboards.contains;
+import static com.saygan.Bitboards.file;
+import static com.saygan.Bitboards.first;
+import static com.saygan.Bitboards.kingAttacks;
+import static com.saygan.Bitboards.knightAttacks;
+import static com.saygan.Bitboards.line;
+import static com.saygan.Bitboards.pawnAttacks;
+import static com.saygan.Bitboards.rank;
+import static com.saygan.Bitboards.square;
+import static com.saygan.MagicBitboards.bishopAttacks;
+import static com.saygan.MagicBitboards.queenAttacks;
+import static com.saygan.MagicBitboards.rookAttacks;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+public class MoveGenerator {
+
+    private static final int START_WHITE_PAWN_RANK = 1;
+    private static final int START_BLACK_PAWN_RANK = 6;
+
+    private static final int C1 = square("c1");
+    private static final int D1 = square("d1");
+    private static final int F1 = square("f1");
+    private static final int G1 = square("g1");
+    private static final int C8 = square("c8");
+    private static final int D8 = square("d8");
+    private static final int F8 = square("f8");
+    private static final int G8 = square("g8");
+
+    private static final long WHITE_WAY_TO_LEFT_CASTLE = bits("b1", "c1", "d1");
+    private static final long BLACK_WAY_TO_LEFT_CASTLE = bits("b8", "c8", "d8");
+    private static final long WHITE_WAY_TO_RIGHT_CASTLE = bits("f1", "g1");
+    private static final long BLACK_WAY_TO_RIGHT_CASTLE = bits("f8", "g8");
+
+    private final Map<Turn, Direction> pawnMoveDirections = new EnumMap<>(Turn.class);
+
+    public MoveGenerator() {
+        pawnMoveDirections.put(Turn.WHITE, Direction.UP);
+        pawnMoveDirections.put(Turn.BLACK, Direction.DOWN);
+    }
+
+    /**
+     * Writes every legal move of the side to move into the list, a promotion once per
+     * piece it can turn into, and returns how many were written.
+     */
+    public int generateMoves(Position position, int[] moves) {
+        Turn turn = position.getTurn();
+        long checkers = checkers(position, turn);
+        long pinned = pinned(position, turn);
+
+        int count = 0;
+        for(long thisSide = position.occupancy(turn); thisSide != 0; thisSide &= thisSide - 1) {
+            int from = first(thisSide);
+            for(long targets = legalMoves(position, turn, from, checkers, pinned); targets != 0; targets &= targets - 1) {
+                count = addMoves(position, from, first(targets), moves, count);
+            }
+        }
+        return count;
+    }
+
+    private int addMoves(Position position, int from, int to, int[] moves, int count) {
+        if (isPromotion(position, from, to)) {
+            for (int promotion = Pieces.QUEEN; promotion >= Pieces.KNIGHT; --promotion) {
+                moves[count++] = toMove(position, from, to, promotion);
+            }
+            return count;
+        }
+        moves[count++] = toMove(position, from, to, Pieces.NONE);
+        return count;
+    }
+
+    /**
+     * Packs a move of the side to move, reading the moved and captured pieces off the board.
+     */
+    public int toMove(Position position, int from, int to, int promotion) {
+        int piece = position.pieceAt(from);
+        int captured = position.pieceAt(to);
+        int flags = 0;
+
+        if (isPawn(piece)) {
+            if (to == position.getInPassantTargetCell()) {
+                captured = Pieces.of(invertTurn(position.getTurn()), Pieces.PAWN);
+                flags = Move.IN_PASSANT;
+            } else if (Math.abs(to - from) == 16) {
+                flags = Move.DOUBLE_PUSH;
+            }
+        } else if (isKing(piece) && Math.abs(to - from) == 2) {
+            flags = Move.CASTLE;
+        }
+
+        return Move.of(from, to, piece, captured, promotion, flags);
+    }
+
+    public boolean isPromotion(Position position, int coordFrom, int coordTo) {
+        return isPawn(position.pieceAt(coordFrom)) && (rank(coordTo) == 7 || rank(coordTo) == 0);
+    }
+
+    private long legalMoves(Position position, Turn turn, int coordFrom, long checkers, long pinned) {
+        int piece = position.pieceAt(coordFrom);
+        int kingCoord = position.kingSquare(turn);
+
+        if (isKing(piece)) {
+            return kingMovesSet(turn, coordFrom, position, checkers);
+        }
+
+        long possibleMoves = doGetPossibleMoves(turn, coordFrom, position);
+        if (kingCoord == NO_SQUARE) {
+            return possibleMoves;
+        }
+        if (Long.bitCount(checkers) > 1) {
+            return 0L;
+        }
+        if (contains(pinned, coordFrom)) {
+            possibleMoves &= line(kingCoord, coordFrom);
+        }
+
+        int inPassantTargetCell = position.getInPassantTargetCell();
+        boolean canTakeInPassant = isPawn(piece) && inPassantTargetCell != NO_SQUARE
+                                && contains(possibleMoves, inPassantTargetCell);
+        if (checkers != 0) {
+            // a check is answered by taking the checker or stepping into its line
+            possibleMoves &= checkers | between(kingCoord, first(checkers));
+        }
+        if (canTakeInPassant) {
+            possibleMoves &= ~bit(inPassantTargetCell);
+            if (isLegalInPassant(turn, coordFrom, inPassantTargetCell, position, checkers)) {
+                possibleMoves |= bit(inPassantTargetCell);
+            }
+        }
+        return possibleMoves;
+    }
+
+    private boolean isLegalInPassant(Turn turn, int coordFrom, int inPassantTargetCell, Position position, long checkers) {
+        int victimCell = inPassantVictimCell(turn, inPassantTargetCell);
+        // only a pawn can be the checker a pawn move takes away, everything else must be blocked by it
+        long sliders = sliders(position, invertTurn(turn));
+        if ((checkers & ~sliders & ~bit(victimCell)) != 0) {
+            return false;
+        }
+        // both pawns leave their cells at once, which can open a line nothing else would
+        long occupied = position.occupancy() ^ bit(coordFrom) ^ bit(victimCell) | bit(inPassantTargetCell);
+        return (position.attackers(position.kingSquare(turn), invertTurn(turn), occupied) & sliders) == 0;
+    }
+
+    private long kingMovesSet(Turn turn, int coordFrom, Position position, long checkers) {
+        Turn opponent = invertTurn(turn);
+        // the king must not shelter behind itself from a slider it is running away from
+        long occupied = position.occupancy() & ~bit(coordFrom);
+
+        long possibleMoves = 0L;
+        for(long moves = kingAttacks(coordFrom) & ~position.occupancy(turn); moves != 0; moves &= moves - 1) {
+            int possibleMove = first(moves);
+            if (position.attackers(possibleMove, opponent, occupied) == 0) {
+                possibleMoves |= bit(possibleMove);
+            }
+        }
+        if (checkers == 0) {
+            possibleMoves |= castleMovesSet(turn, position);
+        }
+        return possibleMoves;
+    }
+
+    private long checkers(Position position, Turn turn) {
+        int kingCoord = position.kingSquare(turn);
+        return kingCoord == NO_SQUARE? 0L : position.attackers(kingCoord, invertTurn(turn), position.occupancy());
+    }
+
+    private long pinned(Position position, Turn turn) {
+        int kingCoord = position.kingSquare(turn);
+        if (kingCoord == NO_SQUARE) {
+            return 0L;
+        }
+
+        Turn opponent = invertTurn(turn);
+        long occupied = position.occupancy();
+        long rooksAndQueens = position.pieces(opponent, Pieces.ROOK) | position.pieces(opponent, Pieces.QUEEN);
+        long bishopsAndQueens = position.pieces(opponent, Pieces.BISHOP) | position.pieces(opponent, Pieces.QUEEN);
+        long snipers = rookAttacks(kingCoord, 0L) & rooksAndQueens | bishopAttacks(kingCoord, 0L) & bishopsAndQueens;
+
+        long pinned = 0L;
+        for(; snipers != 0; snipers &= snipers - 1) {
+            long blockers = between(kingCoord, first(snipers)) & occupied;
+            if (Long.bitCount(blockers) == 1) {
+                pinned |= blockers & position.occupancy(turn);
+            }
+        }
+        return pinned;
+    }
+
+    private long sliders(Position position, Turn side) {
+        return position.pieces(side, Pieces.ROOK) | position.pieces(side, Pieces.BISHOP) | position.pieces(side, Pieces.QUEEN);
+    }
+
+    private int inPassantVictimCell(Turn turn, int inPassantTargetCell) {
+        return Turn.WHITE == turn? inPassantTargetCell - 8 : inPassantTargetCell + 8;
+    }
+
+    private long doGetPossibleMoves(Turn turn, int coordFrom, Position position) {
+        int piece = position.pieceAt(coordFrom);
+        long turning = position.occupancy(turn);
+        long waiting = position.occupancy(invertTurn(turn));
+
+        if (isPawn(piece)) {
+            return pawnMovesSet(turn, coordFrom, turning, waiting, position.getInPassantTargetCell());
+        } else if (isKnight(piece)) {
+            return knightAttacks(coordFrom) & ~turning;
+        } else if (isRook(piece)) {
+            return rookAttacks(coordFrom, turning | waiting) & ~turning;
+        } else if (isBishop(piece)) {
+            return bishopAttacks(coordFrom, turning | waiting) & ~turning;
+        } else if (isQueen(piece)) {
+            return queenAttacks(coordFrom, turning | waiting) & ~turning;
+        } else if (isKing(piece)) {
+            return kingAttacks(coordFrom) & ~turning;
+        }
+
+        return 0L;
+    }
+
+    private long pawnMovesSet(Turn turn, int coordFrom, long turning, long waiting, int inPassantTargetCell) {
+        long fightTargets = inPassantTargetCell == NO_SQUARE? waiting : waiting | bit(inPassantTargetCell);
+        return moveForPawn(pawnMoveDirections.get(turn), coordFrom, turning | waiting)
+             | pawnAttacks(turn, coordFrom) & fightTargets;
+    }
+
+    private long castleMovesSet(Turn turn, Position position) {
+        if (!position.hasCastleRights(castles(turn))) {
+            return 0L;
+        }
+
+        Turn opponent = invertTurn(turn);
+        long occupied = position.occupancy();
+        long possibleMoves = 0L;
+        if (position.hasCastleRights(leftCastle(turn)) && areEmpty(occupied, wayToLeftCastle(turn))
+                && !position.isSquareAttacked(leftCellForKing(turn), opponent)
+                && !position.isSquareAttacked(leftCastleCellForKing(turn), opponent)) {
+            possibleMoves |= bit(leftCastleCellForKing(turn));
+        }
+        if (position.hasCastleRights(rightCastle(turn)) && areEmpty(occupied, wayToRightCastle(turn))
+                && !position.isSquareAttacked(rightCellForKing(turn), opponent)
+                && !position.isSquareAttacked(rightCastleCellForKing(turn), opponent)) {
+            possibleMoves |= bit(rightCastleCellForKing(turn));
+        }
+        return possibleMoves;
+    }
+
+    private boolean areEmpty(long occupied, long cells) {
+        return (occupied & cells) == 0;
+    }
+
+    private long wayToLeftCastle(Turn turn) {
+        return Turn.WHITE == turn? WHITE_WAY_TO_LEFT_CASTLE : BLACK_WAY_TO_LEFT_CASTLE;
+    }
+
+    private long wayToRightCastle(Turn turn) {
+        return Turn.WHITE == turn? WHITE_WAY_TO_RIGHT_CASTLE : BLACK_WAY_TO_RIGHT_CASTLE;
+    }
+
+    private int rightCastleCellForKing(Turn turn) {
+        return Turn.WHITE == turn? G1 : G8;
+    }
+
+    private int leftCastleCellForKing(Turn turn) {
+        return Turn.WHITE == turn? C1 : C8;
+    }
+
+    private int rightCellForKing(Turn turn) {
+        return Turn.WHITE == turn? F1 : F8;
+    }
+
+    private int leftCellForKing(Turn turn) {
+        return Turn.WHITE == turn? D1 : D8;
+    }
+
+    private int leftCastle(Turn turn) {
+        return Turn.WHITE == turn? Position.WHITE_LEFT_CASTLE : Position.BLACK_LEFT_CASTLE;
+    }
+
+    private int rightCastle(Turn turn) {
+        return Turn.WHITE == turn? Position.WHITE_RIGHT_CASTLE : Position.BLACK_RIGHT_CASTLE;
+    }
+
+    private int castles(Turn turn) {
+        return leftCastle(turn) | rightCastle(turn);
+    }
+
+    private boolean hasPieceCollision(long cell, long occupied) {
+        return (cell & occupied) != 0;
+    }
+
+    private long moveForPawn(Direction direction, int coordFrom, long occupied) {
+        long possibleMoves = 0L;
+
+        int letter = file(coordFrom);
+        int digit = rank(coordFrom);
+
+        int cellsCount = pawnsMoveCells(digit, direction);
+
+        for (int i = 0; i < cellsCount; ++i) {
+            digit = direction.getDy() + digit;
+            if (isWithinBoardNavigator(digit)) {
+                long cell = bit(square(letter, digit));
+                if (hasPieceCollision(cell, occupied)) {
+                    break;
+                }
+                possibleMoves |= cell;
+            }
+        }
+        return possibleMoves;
+    }
+
+    private int pawnsMoveCells(int digit, Direction direction) {
+        if(Direction.UP == direction && digit == START_WHITE_PAWN_RANK) {
+            return 2;
+        }
+
+        if(Direction.DOWN == direction && digit == START_BLACK_PAWN_RANK) {
+            return 2;
+        }
+
+        return 1;
+    }
+
+    private boolean isWithinBoardNavigator(int digit) {
+        return digit >= 0 && digit <= 7;
+    }
+
+    private Turn invertTurn(Turn turn) {
+        return (Turn.WHITE == turn)? Turn.BLACK : Turn.WHITE;
+    }
+
+    private boolean isPawn(int piece) {
+        return Pieces.type(piece) == Pieces.PAWN;
+    }
+
+    private boolean isRook(int piece) {
+        return Pieces.type(piece) == Pieces.ROOK;
+    }
+
+    private boolean isKnight(int piece) {
+        return Pieces.type(piece) == Pieces.KNIGHT;
+    }
+
+    private boolean isBishop(int piece) {
+        return Pieces.type(piece) == Pieces.BISHOP;
+    }
+
+    private boolean isQueen(int piece) {
+        return Pieces.type(piece) == Pieces.QUEEN;
+    }
+
+    private boolean isKing(int piece) {
+        return Pieces.type(piece) == Pieces.KING;
+    }
+}
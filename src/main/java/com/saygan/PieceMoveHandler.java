@@ -3,7 +3,7 @@ package com.saygan;
 import static com.saygan.ChessUtils.isOutOfBorder;
 import static com.saygan.ChessUtils.isWithinXBorder;
 import static com.saygan.ChessUtils.isWithinYBorder;
-import static com.saygan.ChessUtils.xyToCoord;
+import static com.saygan.ChessUtils.xyToSquare;
 
 import javafx.event.EventHandler;
 import javafx.scene.image.ImageView;
@@ -22,7 +22,7 @@ public class PieceMoveHandler implements EventHandler<MouseEvent> {
     @Override
     public void handle(MouseEvent e) {
 
-        ImageView piece = (ImageView) e.getTarget();
+        ImageView piece = ui.movingPiece;
 
         if (isWithinXBorder(e.getX())) {
             piece.setX(e.getX() - ui.dX);
@@ -32,20 +32,16 @@ public class PieceMoveHandler implements EventHandler<MouseEvent> {
             piece.setY(e.getY() - ui.dY);
         }
 
-        if (isOutOfBorder(e.getX(), e.getY())) {
-            ui.replaceMoveTarget(ui.currentCoord);
-            return;
+        int newSquare = ui.currentSquare;
+        if (!isOutOfBorder(e.getX(), e.getY())) {
+            int square = xyToSquare(e.getX(), e.getY());
+            if (engine.isPossibleMove(square)) {
+                newSquare = square;
+            }
         }
 
-        String newCoord = xyToCoord(e.getX(), e.getY());
-
-        if (!engine.getPossibleMoves().contains(newCoord)) {
-            ui.replaceMoveTarget(ui.currentCoord);
-            return;
-        }
-
-        if (!ui.targetCoord.equals(newCoord)) {
-            ui.replaceMoveTarget(newCoord);
+        if (ui.targetSquare != newSquare) {
+            ui.replaceMoveTarget(newSquare);
         }
     }
 }
@@ -0,0 +1,82 @@
+package com.saygan;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+import javafx.geometry.Rectangle2D;
+import javafx.scene.image.Image;
+import javafx.scene.image.ImageView;
+import javafx.scene.image.WritableImage;
+
+/**
+ * The merida piece set decoded once into a single strip, one cell per piece in
+ * {@link Pieces} order, for every cell size asked for. Piece nodes show their part
+ * of the strip through a viewport, so creating or reusing one decodes nothing.
+ * Used from the JavaFX thread only.
+ */
+public class PieceSprites {
+
+    private static final String PIECES_DIRECTORY = "merida/";
+
+    private static final Map<Integer, PieceSprites> SIZES = new HashMap<>();
+
+    private final int cellSize;
+    private final WritableImage atlas;
+    private final Rectangle2D[] viewports;
+
+    private PieceSprites(int cellSize) {
+        this.cellSize = cellSize;
+        atlas = new WritableImage(Pieces.COUNT * cellSize, cellSize);
+        viewports = new Rectangle2D[Pieces.COUNT];
+        for (int piece = 0; piece < Pieces.COUNT; ++piece) {
+            Image image = decode(Pieces.name(piece), cellSize);
+            int x = piece * cellSize;
+            // scaling keeps the ratio, so a piece image may come out a pixel short of the cell
+            int width = Math.min(cellSize, (int) image.getWidth());
+            int height = Math.min(cellSize, (int) image.getHeight());
+            atlas.getPixelWriter().setPixels(x, 0, width, height, image.getPixelReader(), 0, 0);
+            viewports[piece] = new Rectangle2D(x, 0, cellSize, cellSize);
+        }
+    }
+
+    /**
+     * Sprites scaled to the given cell size, decoded on the first call for that size.
+     */
+    public static PieceSprites of(int cellSize) {
+        return SIZES.computeIfAbsent(cellSize, PieceSprites::new);
+    }
+
+    public ImageView create(int piece) {
+        ImageView view = new ImageView();
+        show(view, piece);
+        return view;
+    }
+
+    /**
+     * Turns any piece node, new or reused, into the given piece.
+     */
+    public void show(ImageView view, int piece) {
+        view.setImage(atlas);
+        view.setViewport(viewports[piece]);
+        view.setFitWidth(cellSize);
+        view.setFitHeight(cellSize);
+    }
+
+    public Image getAtlas() {
+        return atlas;
+    }
+
+    public Rectangle2D getViewport(int piece) {
+        return viewports[piece];
+    }
+
+    private static Image decode(String name, int cellSize) {
+        try (InputStream is = PieceSprites.class.getClassLoader().getResourceAsStream(PIECES_DIRECTORY + name + ".png")) {
+            return new Image(is, cellSize, cellSize, true, true);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
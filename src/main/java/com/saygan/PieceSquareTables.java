@@ -0,0 +1,127 @@
+package com.saygan;
+
+import static com.saygan.Bitboards.SQUARES;
+
+/**
+ * Piece values plus square bonuses for the middlegame and the endgame, from white's point
+ * of view. A position's score blends the two by how much material other than pawns is left.
+ */
+public class PieceSquareTables {
+
+    public static final int MAX_PHASE = 24;
+
+    // phase weights of each piece type, all of them on the board add up to MAX_PHASE
+    private static final int[] PHASES = new int[] { 0, 1, 1, 2, 4, 0 };
+
+    // laid out as seen from white, a8 first, so black reads them with the square as is
+    private static final int[][] MIDDLEGAME = new int[][] {
+        {   0,   0,   0,   0,   0,   0,   0,   0,
+           50,  50,  50,  50,  50,  50,  50,  50,
+           10,  10,  20,  30,  30,  20,  10,  10,
+            5,   5,  10,  25,  25,  10,   5,   5,
+            0,   0,   0,  20,  20,   0,   0,   0,
+            5,  -5, -10,   0,   0, -10,  -5,   5,
+            5,  10,  10, -20, -20,  10,  10,   5,
+            0,   0,   0,   0,   0,   0,   0,   0 },
+        { -50, -40, -30, -30, -30, -30, -40, -50,
+          -40, -20,   0,   0,   0,   0, -20, -40,
+          -30,   0,  10,  15,  15,  10,   0, -30,
+          -30,   5,  15,  20,  20,  15,   5, -30,
+          -30,   0,  15,  20,  20,  15,   0, -30,
+          -30,   5,  10,  15,  15,  10,   5, -30,
+          -40, -20,   0,   5,   5,   0, -20, -40,
+          -50, -40, -30, -30, -30, -30, -40, -50 },
+        { -20, -10, -10, -10, -10, -10, -10, -20,
+          -10,   0,   0,   0,   0,   0,   0, -10,
+          -10,   0,   5,  10,  10,   5,   0, -10,
+          -10,   5,   5,  10,  10,   5,   5, -10,
+          -10,   0,  10,  10,  10,  10,   0, -10,
+          -10,  10,  10,  10,  10,  10,  10, -10,
+          -10,   5,   0,   0,   0,   0,   5, -10,
+          -20, -10, -10, -10, -10, -10, -10, -20 },
+        {   0,   0,   0,   0,   0,   0,   0,   0,
+            5,  10,  10,  10,  10,  10,  10,   5,
+           -5,   0,   0,   0,   0,   0,   0,  -5,
+           -5,   0,   0,   0,   0,   0,   0,  -5,
+           -5,   0,   0,   0,   0,   0,   0,  -5,
+           -5,   0,   0,   0,   0,   0,   0,  -5,
+           -5,   0,   0,   0,   0,   0,   0,  -5,
+            0,   0,   0,   5,   5,   0,   0,   0 },
+        { -20, -10, -10,  -5,  -5, -10, -10, -20,
+          -10,   0,   0,   0,   0,   0,   0, -10,
+          -10,   0,   5,   5,   5,   5,   0, -10,
+           -5,   0,   5,   5,   5,   5,   0,  -5,
+            0,   0,   5,   5,   5,   5,   0,  -5,
+          -10,   5,   5,   5,   5,   5,   0, -10,
+          -10,   0,   5,   0,   0,   0,   0, -10,
+          -20, -10, -10,  -5,  -5, -10, -10, -20 },
+        { -30, -40, -40, -50, -50, -40, -40, -30,
+          -30, -40, -40, -50, -50, -40, -40, -30,
+          -30, -40, -40, -50, -50, -40, -40, -30,
+          -30, -40, -40, -50, -50, -40, -40, -30,
+          -20, -30, -30, -40, -40, -30, -30, -20,
+          -10, -20, -20, -20, -20, -20, -20, -10,
+           20,  20,   0,   0,   0,   0,  20,  20,
+           20,  30,  10,   0,   0,  10,  30,  20 }
+    };
+
+    // pieces keep their middlegame bonuses, pawns are pushed on and the king comes out
+    private static final int[] ENDGAME_PAWN = new int[] {
+            0,   0,   0,   0,   0,   0,   0,   0,
+           80,  80,  80,  80,  80,  80,  80,  80,
+           50,  50,  50,  50,  50,  50,  50,  50,
+           30,  30,  30,  30,  30,  30,  30,  30,
+           20,  20,  20,  20,  20,  20,  20,  20,
+           10,  10,  10,  10,  10,  10,  10,  10,
+            0,   0,   0,   0,   0,   0,   0,   0,
+            0,   0,   0,   0,   0,   0,   0,   0 };
+
+    private static final int[] ENDGAME_KING = new int[] {
+          -50, -40, -30, -20, -20, -30, -40, -50,
+          -30, -20, -10,   0,   0, -10, -20, -30,
+          -30, -10,  20,  30,  30,  20, -10, -30,
+          -30, -10,  30,  40,  40,  30, -10, -30,
+          -30, -10,  30,  40,  40,  30, -10, -30,
+          -30, -10,  20,  30,  30,  20, -10, -30,
+          -30, -30,   0,   0,   0,   0, -30, -30,
+          -50, -30, -30, -30, -30, -30, -30, -50 };
+
+    // signed by colour and indexed by piece and board square, material included
+    private static final int[][] MIDDLEGAME_SCORES = new int[Pieces.COUNT][SQUARES];
+    private static final int[][] ENDGAME_SCORES = new int[Pieces.COUNT][SQUARES];
+
+    static {
+        for (int type = Pieces.PAWN; type <= Pieces.KING; ++type) {
+            int[] endgame = type == Pieces.PAWN? ENDGAME_PAWN : type == Pieces.KING? ENDGAME_KING : MIDDLEGAME[type];
+            int value = type == Pieces.KING? 0 : Pieces.value(type);
+            for (int square = 0; square < SQUARES; ++square) {
+                int white = Pieces.of(Pieces.WHITE, type);
+                int black = Pieces.of(Pieces.BLACK, type);
+                MIDDLEGAME_SCORES[white][square] = value + MIDDLEGAME[type][square ^ 56];
+                ENDGAME_SCORES[white][square] = value + endgame[square ^ 56];
+                MIDDLEGAME_SCORES[black][square] = -value - MIDDLEGAME[type][square];
+                ENDGAME_SCORES[black][square] = -value - endgame[square];
+            }
+        }
+    }
+
+    public static int middlegame(int piece, int square) {
+        return MIDDLEGAME_SCORES[piece][square];
+    }
+
+    public static int endgame(int piece, int square) {
+        return ENDGAME_SCORES[piece][square];
+    }
+
+    public static int phase(int piece) {
+        return PHASES[Pieces.type(piece)];
+    }
+
+    /**
+     * Blends the two scores, phase runs from MAX_PHASE at the start down to 0 with bare pawns.
+     */
+    public static int taper(int middlegame, int endgame, int phase) {
+        int weight = Math.min(phase, MAX_PHASE);
+        return (middlegame * weight + endgame * (MAX_PHASE - weight)) / MAX_PHASE;
+    }
+}
@@ -0,0 +1,54 @@
+package com.saygan;
+
+public class Pieces {
+
+    public static final int NONE = -1;
+
+    public static final int PAWN = 0;
+    public static final int KNIGHT = 1;
+    public static final int BISHOP = 2;
+    public static final int ROOK = 3;
+    public static final int QUEEN = 4;
+    public static final int KING = 5;
+
+    public static final int TYPES = 6;
+    public static final int COUNT = 2 * TYPES;
+
+    public static final int WHITE = 0;
+    public static final int BLACK = 1;
+
+    private static final String NAMES = "PNBRQK";
+
+    // in centipawns, the king is worth more than everything else so no exchange ever gives it up
+    private static final int[] VALUES = new int[] { 100, 320, 330, 500, 900, 20000 };
+
+    public static int of(int colour, int type) {
+        return colour * TYPES + type;
+    }
+
+    public static int of(Turn side, int type) {
+        return of(side.ordinal(), type);
+    }
+
+    public static int type(int piece) {
+        return piece % TYPES;
+    }
+
+    public static int colour(int piece) {
+        return piece / TYPES;
+    }
+
+    public static int value(int type) {
+        return VALUES[type];
+    }
+
+    public static String name(int piece) {
+        char colour = colour(piece) == WHITE? 'w' : 'b';
+        return new String(new char[] { colour, NAMES.charAt(type(piece)) });
+    }
+
+    public static int fromName(String name) {
+        int colour = name.charAt(0) == 'w'? WHITE : BLACK;
+        return of(colour, NAMES.indexOf(name.charAt(1)));
+    }
+}
@@ -0,0 +1,69 @@
+package com.saygan;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Uses the time the player spends thinking on a background thread: every reply to the
+ * position is played out and its legal moves and verdict are put into the move cache,
+ * so whichever move is made next is answered from the cache. Pondering a new position
+ * or calling {@link #stop()} abandons whatever was still being worked on.
+ */
+public class Ponderer {
+
+    private final PositionCache cache;
+    private final ExecutorService executor;
+    private final AtomicInteger task;
+
+    // only touched by the pondering thread
+    private final MoveGenerator moveGenerator;
+    private final int[] moves;
+    private final int[] replies;
+    private final int[] encoded;
+
+    public Ponderer(PositionCache cache) {
+        this.cache = cache;
+        executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ponderer");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+        task = new AtomicInteger();
+        moveGenerator = new MoveGenerator();
+        moves = new int[Move.MAX_MOVES];
+        replies = new int[Move.MAX_MOVES];
+        encoded = new int[Move.MAX_MOVES];
+    }
+
+    /**
+     * Starts working on a copy of the position, the returned future completes once every
+     * reply is in the cache or the work has been abandoned.
+     */
+    public Future<?> ponder(Position position) {
+        int current = task.incrementAndGet();
+        Position copy = new Position(position);
+        return executor.submit(() -> precompute(copy, current));
+    }
+
+    public void stop() {
+        task.incrementAndGet();
+    }
+
+    private void precompute(Position position, int current) {
+        int count = moveGenerator.generateMoves(position, moves);
+        for (int i = 0; i < count && task.get() == current; ++i) {
+            position.makeMove(moves[i]);
+            if (cache.probe(position.getKey(), encoded) == PositionCache.MISS) {
+                int repliesCount = moveGenerator.generateMoves(position, replies);
+                for (int r = 0; r < repliesCount; ++r) {
+                    encoded[r] = PositionCache.encode(replies[r]);
+                }
+                cache.store(position.getKey(), ChessEngine.verdict(position), encoded, repliesCount);
+            }
+            position.unmakeMove();
+        }
+    }
+}
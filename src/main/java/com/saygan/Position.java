@@ -0,0 +1,525 @@
+package com.saygan;
+
+import static com.saygan.Bitboards.NO_SQUARE;
+import static com.saygan.Bitboards.SQUARES;
+import static com.saygan.Bitboards.bit;
+import static com.saygan.Bitboards.coord;
+import static com.saygan.Bitboards.file;
+import static com.saygan.Bitboards.first;
+import static com.saygan.Bitboards.kingAttacks;
+import static com.saygan.Bitboards.knightAttacks;
+import static com.saygan.Bitboards.pawnAttacks;
+import static com.saygan.Bitboards.square;
+import static com.saygan.MagicBitboards.bishopAttacks;
+import static com.saygan.MagicBitboards.rookAttacks;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.saygan.file.GameState;
+
+public class Position {
+
+    public static final int WHITE_RIGHT_CASTLE = 1;
+    public static final int WHITE_LEFT_CASTLE = 2;
+    public static final int BLACK_RIGHT_CASTLE = 4;
+    public static final int BLACK_LEFT_CASTLE = 8;
+    public static final int ALL_CASTLES = 15;
+
+    private static final int LEFT_ROOK = 0;
+    private static final int KING = 1;
+    private static final int RIGHT_ROOK = 2;
+
+    private static final int RIGHT_CASTLE_KING_FILE = 6;
+
+    private static final int INITIAL_HISTORY_SIZE = 256;
+
+    // material signature keeps a four bit count per piece
+    private static final int MATERIAL_BITS = 4;
+
+    private static final int[] CASTLE_RIGHTS_KEPT = new int[SQUARES];
+
+    static {
+        Arrays.fill(CASTLE_RIGHTS_KEPT, ALL_CASTLES);
+        CASTLE_RIGHTS_KEPT[square("a1")] &= ~WHITE_LEFT_CASTLE;
+        CASTLE_RIGHTS_KEPT[square("e1")] &= ~(WHITE_LEFT_CASTLE | WHITE_RIGHT_CASTLE);
+        CASTLE_RIGHTS_KEPT[square("h1")] &= ~WHITE_RIGHT_CASTLE;
+        CASTLE_RIGHTS_KEPT[square("a8")] &= ~BLACK_LEFT_CASTLE;
+        CASTLE_RIGHTS_KEPT[square("e8")] &= ~(BLACK_LEFT_CASTLE | BLACK_RIGHT_CASTLE);
+        CASTLE_RIGHTS_KEPT[square("h8")] &= ~BLACK_RIGHT_CASTLE;
+    }
+
+    private final long[] pieces;
+    private final long[] occupancy;
+    private final int[] board;
+    private final int[] kingSquares;
+
+    private Turn turn;
+    private int castleRights;
+    private int inPassantTargetCell;
+    private int possibleDrawMovesCount;
+    private long key;
+    // pawns and kings only, for caches of pawn structure analysis
+    private long pawnKey;
+
+    // kept up to date by put and remove, scores are from white's point of view
+    private long material;
+    private int middlegameScore;
+    private int endgameScore;
+    private int phase;
+
+    // one packed entry per made move: from, to, piece, captured piece, in passant flag
+    // and the castle rights, in passant cell and draw counter it replaced
+    private long[] history;
+    private int historySize;
+
+    // keys of the positions before each move, trimmed to the last irreversible move
+    private long[] keys;
+    private int keysSize;
+
+    // scratch space of see, one gain per capture of an exchange of at most all 32 pieces
+    private final int[] exchangeGains = new int[32];
+
+    public Position() {
+        pieces = new long[Pieces.COUNT];
+        occupancy = new long[2];
+        board = new int[SQUARES];
+        kingSquares = new int[2];
+        history = new long[INITIAL_HISTORY_SIZE];
+        keys = new long[INITIAL_HISTORY_SIZE];
+        clear();
+    }
+
+    public Position(Position other) {
+        pieces = other.pieces.clone();
+        occupancy = other.occupancy.clone();
+        board = other.board.clone();
+        kingSquares = other.kingSquares.clone();
+        turn = other.turn;
+        castleRights = other.castleRights;
+        inPassantTargetCell = other.inPassantTargetCell;
+        possibleDrawMovesCount = other.possibleDrawMovesCount;
+        key = other.key;
+        pawnKey = other.pawnKey;
+        material = other.material;
+        middlegameScore = other.middlegameScore;
+        endgameScore = other.endgameScore;
+        phase = other.phase;
+        history = other.history.clone();
+        historySize = other.historySize;
+        keys = other.keys.clone();
+        keysSize = other.keysSize;
+    }
+
+    public Position(GameState state) {
+        this();
+        load(state);
+    }
+
+    public void clear() {
+        Arrays.fill(pieces, 0L);
+        Arrays.fill(occupancy, 0L);
+        Arrays.fill(board, Pieces.NONE);
+        Arrays.fill(kingSquares, NO_SQUARE);
+        turn = Turn.WHITE;
+        castleRights = 0;
+        inPassantTargetCell = NO_SQUARE;
+        possibleDrawMovesCount = 0;
+        key = 0L;
+        pawnKey = 0L;
+        material = 0L;
+        middlegameScore = 0;
+        endgameScore = 0;
+        phase = 0;
+        historySize = 0;
+        keysSize = 0;
+    }
+
+    public void load(GameState state) {
+        clear();
+        for (Map.Entry<String, String> entry : state.getWhite().entrySet()) {
+            put(square(entry.getKey()), Pieces.fromName(entry.getValue()));
+        }
+        for (Map.Entry<String, String> entry : state.getBlack().entrySet()) {
+            put(square(entry.getKey()), Pieces.fromName(entry.getValue()));
+        }
+        turn = state.getTurn();
+        castleRights = castleRights(state.getWhiteCastleConditions(), WHITE_LEFT_CASTLE, WHITE_RIGHT_CASTLE)
+                     | castleRights(state.getBlackCastleConditions(), BLACK_LEFT_CASTLE, BLACK_RIGHT_CASTLE);
+        possibleDrawMovesCount = state.getPossibleDrawMovesCount();
+        inPassantTargetCell = state.getInPassantTargetCell() == null? NO_SQUARE : square(state.getInPassantTargetCell());
+        key ^= Zobrist.turn(turn) ^ Zobrist.castleRights(castleRights) ^ inPassantKey();
+
+        long[] repetitionKeys = state.getRepetitionKeys();
+        keys = Arrays.copyOf(repetitionKeys, Math.max(repetitionKeys.length * 2, INITIAL_HISTORY_SIZE));
+        keysSize = repetitionKeys.length;
+    }
+
+    private int castleRights(boolean[] castleConditions, int leftCastle, int rightCastle) {
+        if (castleConditions[KING]) {
+            return 0;
+        }
+        return (castleConditions[LEFT_ROOK]? 0 : leftCastle) | (castleConditions[RIGHT_ROOK]? 0 : rightCastle);
+    }
+
+    public boolean[] getCastleConditions(Turn side) {
+        int leftCastle = Turn.WHITE == side? WHITE_LEFT_CASTLE : BLACK_LEFT_CASTLE;
+        int rightCastle = Turn.WHITE == side? WHITE_RIGHT_CASTLE : BLACK_RIGHT_CASTLE;
+        boolean leftRookMoved = (castleRights & leftCastle) == 0;
+        boolean rightRookMoved = (castleRights & rightCastle) == 0;
+        return new boolean[] { leftRookMoved, leftRookMoved && rightRookMoved, rightRookMoved };
+    }
+
+    public Map<String, String> getTeam(Turn side) {
+        Map<String, String> team = new LinkedHashMap<>();
+        for (long sidePieces = occupancy(side); sidePieces != 0; sidePieces &= sidePieces - 1) {
+            int square = first(sidePieces);
+            team.put(coord(square), Pieces.name(board[square]));
+        }
+        return team;
+    }
+
+    public void put(int square, int piece) {
+        long bit = bit(square);
+        pieces[piece] |= bit;
+        occupancy[Pieces.colour(piece)] |= bit;
+        board[square] = piece;
+        if (Pieces.type(piece) == Pieces.KING) {
+            kingSquares[Pieces.colour(piece)] = square;
+        }
+        key ^= Zobrist.piece(piece, square);
+        if (Pieces.type(piece) == Pieces.PAWN || Pieces.type(piece) == Pieces.KING) {
+            pawnKey ^= Zobrist.piece(piece, square);
+        }
+        material += 1L << (piece * MATERIAL_BITS);
+        middlegameScore += PieceSquareTables.middlegame(piece, square);
+        endgameScore += PieceSquareTables.endgame(piece, square);
+        phase += PieceSquareTables.phase(piece);
+    }
+
+    public int remove(int square) {
+        int piece = board[square];
+        if (piece != Pieces.NONE) {
+            long bit = bit(square);
+            pieces[piece] &= ~bit;
+            occupancy[Pieces.colour(piece)] &= ~bit;
+            board[square] = Pieces.NONE;
+            if (Pieces.type(piece) == Pieces.KING) {
+                kingSquares[Pieces.colour(piece)] = NO_SQUARE;
+            }
+            key ^= Zobrist.piece(piece, square);
+            if (Pieces.type(piece) == Pieces.PAWN || Pieces.type(piece) == Pieces.KING) {
+                pawnKey ^= Zobrist.piece(piece, square);
+            }
+            material -= 1L << (piece * MATERIAL_BITS);
+            middlegameScore -= PieceSquareTables.middlegame(piece, square);
+            endgameScore -= PieceSquareTables.endgame(piece, square);
+            phase -= PieceSquareTables.phase(piece);
+        }
+        return piece;
+    }
+
+    public int move(int from, int to) {
+        int captured = remove(to);
+        put(to, remove(from));
+        return captured;
+    }
+
+    public void makeMove(int move) {
+        makeMove(Move.from(move), Move.to(move), Move.promotion(move));
+    }
+
+    public void makeMove(int from, int to, int promotion) {
+        int piece = board[from];
+        boolean isPawn = Pieces.type(piece) == Pieces.PAWN;
+        boolean inPassantCapture = isPawn && to == inPassantTargetCell;
+        int capturedCell = inPassantCapture? inPassantVictimCell(to) : to;
+        int captured = board[capturedCell];
+
+        pushHistory(from, to, piece, captured, inPassantCapture);
+        pushKey();
+        key ^= inPassantKey() ^ Zobrist.castleRights(castleRights) ^ Zobrist.turn(turn);
+
+        if (captured != Pieces.NONE) {
+            remove(capturedCell);
+        }
+        remove(from);
+        put(to, promotion == Pieces.NONE? piece : Pieces.of(turn, promotion));
+
+        if (isCastle(piece, from, to)) {
+            move(castleRookFrom(to), castleRookTo(to));
+        }
+
+        castleRights &= CASTLE_RIGHTS_KEPT[from] & CASTLE_RIGHTS_KEPT[to];
+        inPassantTargetCell = isPawn && Math.abs(to - from) == 16? (from + to) >>> 1 : NO_SQUARE;
+        possibleDrawMovesCount = isPawn || captured != Pieces.NONE? 0 : possibleDrawMovesCount + 1;
+        turn = invert(turn);
+        key ^= inPassantKey() ^ Zobrist.castleRights(castleRights) ^ Zobrist.turn(turn);
+    }
+
+    public void unmakeMove() {
+        long entry = history[--historySize];
+        int from = (int) (entry & 63);
+        int to = (int) ((entry >>> 6) & 63);
+        int piece = (int) ((entry >>> 12) & 15);
+        int captured = (int) ((entry >>> 16) & 15) - 1;
+        boolean inPassantCapture = ((entry >>> 20) & 1) != 0;
+
+        turn = invert(turn);
+
+        remove(to);
+        put(from, piece);
+
+        if (isCastle(piece, from, to)) {
+            move(castleRookTo(to), castleRookFrom(to));
+        }
+
+        if (captured != Pieces.NONE) {
+            put(inPassantCapture? inPassantVictimCell(to) : to, captured);
+        }
+
+        castleRights = (int) ((entry >>> 21) & 15);
+        inPassantTargetCell = (int) ((entry >>> 25) & 127) - 1;
+        possibleDrawMovesCount = (int) (entry >>> 32);
+        key = keys[--keysSize];
+    }
+
+    public int countRepetitions() {
+        int repetitions = 0;
+        int lastIrreversibleMove = Math.max(0, keysSize - possibleDrawMovesCount);
+        for (int i = keysSize - 2; i >= lastIrreversibleMove; i -= 2) {
+            if (keys[i] == key) {
+                repetitions++;
+            }
+        }
+        return repetitions;
+    }
+
+    public void trimHistory() {
+        int keep = Math.min(keysSize, possibleDrawMovesCount);
+        System.arraycopy(keys, keysSize - keep, keys, 0, keep);
+        keysSize = keep;
+        historySize = 0;
+    }
+
+    public long[] getRepetitionKeys() {
+        int keep = Math.min(keysSize, possibleDrawMovesCount);
+        return Arrays.copyOfRange(keys, keysSize - keep, keysSize);
+    }
+
+    public boolean isSquareAttacked(int square, Turn by) {
+        return attackers(square, by, occupancy()) != 0;
+    }
+
+    /**
+     * Pieces of the given side attacking the square when the board holds the given occupancy.
+     */
+    public long attackers(int square, Turn by, long occupied) {
+        int colour = by.ordinal();
+        long rooksAndQueens = pieces[Pieces.of(colour, Pieces.ROOK)] | pieces[Pieces.of(colour, Pieces.QUEEN)];
+        long bishopsAndQueens = pieces[Pieces.of(colour, Pieces.BISHOP)] | pieces[Pieces.of(colour, Pieces.QUEEN)];
+
+        // a piece of ours standing on the square would attack exactly the cells its attackers stand on
+        return (knightAttacks(square) & pieces[Pieces.of(colour, Pieces.KNIGHT)])
+             | (pawnAttacks(invert(by), square) & pieces[Pieces.of(colour, Pieces.PAWN)])
+             | (kingAttacks(square) & pieces[Pieces.of(colour, Pieces.KING)])
+             | (rookAttacks(square, occupied) & rooksAndQueens)
+             | (bishopAttacks(square, occupied) & bishopsAndQueens);
+    }
+
+    /**
+     * Static exchange evaluation: material won by the side moving from -> to once both sides
+     * have kept recapturing on the target with their least valuable attacker, each free to stop
+     * when going on would lose. Sliders lined up behind an attacker join in as it leaves.
+     */
+    public int see(int from, int to) {
+        int[] gain = exchangeGains;
+        int piece = board[from];
+        long occupied = occupancy();
+        int captured = board[to];
+
+        if (Pieces.type(piece) == Pieces.PAWN && to == inPassantTargetCell) {
+            captured = Pieces.of(invert(Turn.values()[Pieces.colour(piece)]), Pieces.PAWN);
+            occupied &= ~bit(inPassantVictimCell(to));
+        }
+        gain[0] = captured == Pieces.NONE? 0 : Pieces.value(Pieces.type(captured));
+
+        Turn side = Turn.values()[Pieces.colour(piece)];
+        long attackerBit = bit(from);
+        int depth = 0;
+        while (attackerBit != 0) {
+            ++depth;
+            // what the next side wins by taking the piece that just arrived on the target
+            gain[depth] = Pieces.value(Pieces.type(piece)) - gain[depth - 1];
+            if (Math.max(-gain[depth - 1], gain[depth]) < 0) {
+                break;
+            }
+
+            occupied &= ~attackerBit;
+            side = invert(side);
+            long sideAttackers = attackers(to, side, occupied) & occupied;
+            attackerBit = 0L;
+            for (int type = Pieces.PAWN; type <= Pieces.KING && attackerBit == 0; ++type) {
+                long candidates = sideAttackers & pieces[Pieces.of(side, type)];
+                if (candidates != 0) {
+                    attackerBit = candidates & -candidates;
+                    piece = Pieces.of(side, type);
+                }
+            }
+        }
+
+        while (--depth > 0) {
+            gain[depth - 1] = -Math.max(-gain[depth - 1], gain[depth]);
+        }
+        return gain[0];
+    }
+
+    public boolean isUnderCheck(Turn side) {
+        int kingSquare = kingSquares[side.ordinal()];
+        return kingSquare != NO_SQUARE && isSquareAttacked(kingSquare, invert(side));
+    }
+
+    private void pushHistory(int from, int to, int piece, int captured, boolean inPassantCapture) {
+        if (historySize == history.length) {
+            history = Arrays.copyOf(history, history.length * 2);
+        }
+        history[historySize++] = from
+                               | (to << 6)
+                               | (piece << 12)
+                               | ((captured + 1) << 16)
+                               | ((inPassantCapture? 1 : 0) << 20)
+                               | (castleRights << 21)
+                               | ((long) (inPassantTargetCell + 1) << 25)
+                               | ((long) possibleDrawMovesCount << 32);
+    }
+
+    private void pushKey() {
+        if (keysSize == keys.length) {
+            keys = Arrays.copyOf(keys, keys.length * 2);
+        }
+        keys[keysSize++] = key;
+    }
+
+    private long inPassantKey() {
+        if (inPassantTargetCell == NO_SQUARE) {
+            return 0L;
+        }
+        int victim = inPassantVictimCell(inPassantTargetCell);
+        long neighbours = (file(victim) > 0? bit(victim - 1) : 0L) | (file(victim) < 7? bit(victim + 1) : 0L);
+        return (neighbours & pieces(turn, Pieces.PAWN)) != 0? Zobrist.inPassant(inPassantTargetCell) : 0L;
+    }
+
+    private boolean isCastle(int piece, int from, int to) {
+        return Pieces.type(piece) == Pieces.KING && Math.abs(to - from) == 2;
+    }
+
+    private int castleRookFrom(int kingTo) {
+        return file(kingTo) == RIGHT_CASTLE_KING_FILE? kingTo + 1 : kingTo - 2;
+    }
+
+    private int castleRookTo(int kingTo) {
+        return file(kingTo) == RIGHT_CASTLE_KING_FILE? kingTo - 1 : kingTo + 1;
+    }
+
+    private int inPassantVictimCell(int inPassantTargetCell) {
+        return Turn.WHITE == turn? inPassantTargetCell - 8 : inPassantTargetCell + 8;
+    }
+
+    private Turn invert(Turn turn) {
+        return Turn.WHITE == turn? Turn.BLACK : Turn.WHITE;
+    }
+
+    public int pieceAt(int square) {
+        return board[square];
+    }
+
+    public long pieces(int piece) {
+        return pieces[piece];
+    }
+
+    public long pieces(Turn side, int type) {
+        return pieces[Pieces.of(side, type)];
+    }
+
+    public long occupancy(Turn side) {
+        return occupancy[side.ordinal()];
+    }
+
+    public long occupancy() {
+        return occupancy[Pieces.WHITE] | occupancy[Pieces.BLACK];
+    }
+
+    public int kingSquare(Turn side) {
+        return kingSquares[side.ordinal()];
+    }
+
+    public Turn getTurn() {
+        return turn;
+    }
+
+    public boolean hasCastleRights(int castles) {
+        return (castleRights & castles) != 0;
+    }
+
+    public int getInPassantTargetCell() {
+        return inPassantTargetCell;
+    }
+
+    public int getPossibleDrawMovesCount() {
+        return possibleDrawMovesCount;
+    }
+
+    /**
+     * Material signature, the count of every piece packed four bits apiece, equal for
+     * any two positions with the same material.
+     */
+    public long getMaterial() {
+        return material;
+    }
+
+    public int count(int piece) {
+        return (int) (material >>> (piece * MATERIAL_BITS)) & ((1 << MATERIAL_BITS) - 1);
+    }
+
+    public int count(Turn side, int type) {
+        return count(Pieces.of(side, type));
+    }
+
+    /**
+     * Whether neither side has the material left to mate, the rule games are drawn by:
+     * no pawns, rooks or queens, and neither side with two bishops, two knights or a
+     * bishop and a knight.
+     */
+    public boolean isNotEnoughMaterial() {
+        for (Turn side : Turn.values()) {
+            int bishops = count(side, Pieces.BISHOP);
+            int knights = count(side, Pieces.KNIGHT);
+            if (count(side, Pieces.PAWN) != 0 || count(side, Pieces.ROOK) != 0 || count(side, Pieces.QUEEN) != 0
+                    || bishops == 2 || knights == 2 || (bishops == 1 && knights == 1)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Material and piece placement in centipawns from white's point of view, tapered
+     * between the middlegame and endgame tables.
+     */
+    public int getScore() {
+        return PieceSquareTables.taper(middlegameScore, endgameScore, phase);
+    }
+
+    public int getPhase() {
+        return phase;
+    }
+
+    public long getKey() {
+        return key;
+    }
+
+    public long getPawnKey() {
+        return pawnKey;
+    }
+}
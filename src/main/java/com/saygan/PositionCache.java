@@ -0,0 +1,214 @@
+package com.saygan;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Fixed size cache of legal move lists and verdicts keyed by position key, kept off heap
+ * and shared by every engine of the JVM. Readers and writers never lock: each slot holds
+ * its key mixed with everything else it stores, so a slot torn by a concurrent write
+ * fails verification and reads as a miss. A move list too long for one slot runs on into
+ * the following slots of its bucket, whatever those held before then reads as a miss.
+ */
+public class PositionCache {
+
+    public static final int MISS = -1;
+
+    public static final int CHECK = 1;
+    public static final int NOT_ENOUGH_MATERIAL = 2;
+
+    private static final String SIZE_PROPERTY = "chess.cache.mb";
+    private static final int DEFAULT_SIZE_MB = 16;
+
+    private static final int SLOT_SIZE = 128;
+    private static final int SLOTS_PER_BUCKET = 4;
+    private static final int MOVES_OFFSET = 16;
+
+    // longest list a whole bucket holds, more than any legal position has
+    public static final int MAX_MOVES = (SLOTS_PER_BUCKET * SLOT_SIZE - MOVES_OFFSET) / 2;
+    private static final long MIX = 0x9E3779B97F4A7C15L;
+
+    private static final PositionCache SHARED = new PositionCache(Integer.getInteger(SIZE_PROPERTY, DEFAULT_SIZE_MB));
+
+    // slot layout: key ^ data ^ moves hash, data (count, verdict, generation), then the moves
+    // as from | to << 6 | promotion + 1 << 12 in 16 bits each
+    private final ByteBuffer slots;
+    private final int bucketMask;
+
+    private final AtomicInteger generation;
+    private final LongAdder probes;
+    private final LongAdder hits;
+    private final LongAdder stores;
+    private final LongAdder rejected;
+
+    public PositionCache(int sizeMb) {
+        int buckets = Integer.highestOneBit(Math.max(1, sizeMb) * 1024 * 1024 / (SLOT_SIZE * SLOTS_PER_BUCKET));
+        slots = ByteBuffer.allocateDirect(buckets * SLOTS_PER_BUCKET * SLOT_SIZE).order(ByteOrder.nativeOrder());
+        bucketMask = buckets - 1;
+        generation = new AtomicInteger();
+        probes = new LongAdder();
+        hits = new LongAdder();
+        stores = new LongAdder();
+        rejected = new LongAdder();
+    }
+
+    public static PositionCache shared() {
+        return SHARED;
+    }
+
+    /**
+     * Copies the cached moves of the position into the array and returns their count and
+     * verdict packed as by {@link #entry(int, int)}, or {@link #MISS}.
+     */
+    public int probe(long key, int[] moves) {
+        probes.increment();
+        int bucket = bucket(key);
+        for (int i = 0; i < SLOTS_PER_BUCKET; ++i) {
+            int slot = bucket + i * SLOT_SIZE;
+            long data = slots.getLong(slot + 8);
+            int count = slotCount(data);
+            if (count > capacity(i)) {
+                continue;
+            }
+            long hash = 0L;
+            for (int m = 0; m < count; ++m) {
+                moves[m] = slots.getShort(slot + MOVES_OFFSET + m * 2) & 0xFFFF;
+                hash = (hash ^ moves[m]) * MIX;
+            }
+            if (slots.getLong(slot) == (key ^ data ^ hash) && data != 0) {
+                hits.increment();
+                return entry(count, slotVerdict(data));
+            }
+        }
+        return MISS;
+    }
+
+    /**
+     * Keeps the moves unless there are more than {@link #MAX_MOVES}, which only counts as
+     * rejected. The slot taken is the first one the moves fit from that already holds the
+     * position or is empty or left from an older generation, else the last they fit from.
+     */
+    public void store(long key, int verdict, int[] moves, int count) {
+        if (count > MAX_MOVES) {
+            rejected.increment();
+            return;
+        }
+        stores.increment();
+
+        int current = generation.get() & 0xFFFF;
+        int bucket = bucket(key);
+        int last = SLOTS_PER_BUCKET - (MOVES_OFFSET + count * 2 + SLOT_SIZE - 1) / SLOT_SIZE;
+        int slot = bucket + last * SLOT_SIZE;
+        for (int i = 0; i <= last; ++i) {
+            int candidate = bucket + i * SLOT_SIZE;
+            long data = slots.getLong(candidate + 8);
+            if (data == 0 || slotGeneration(data) != current || holds(candidate, i, key, data)) {
+                slot = candidate;
+                break;
+            }
+        }
+
+        // count is stored + 1 so an empty slot never looks like a position without moves
+        long data = (count + 1) | ((long) verdict << 8) | ((long) current << 16);
+        long hash = 0L;
+        for (int m = 0; m < count; ++m) {
+            slots.putShort(slot + MOVES_OFFSET + m * 2, (short) moves[m]);
+            hash = (hash ^ (moves[m] & 0xFFFF)) * MIX;
+        }
+        slots.putLong(slot + 8, data);
+        slots.putLong(slot, key ^ data ^ hash);
+    }
+
+    /**
+     * Starts a new generation, entries of older ones are replaced first.
+     */
+    public void newGeneration() {
+        generation.incrementAndGet();
+    }
+
+    public static int encode(int move) {
+        return Move.from(move) | (Move.to(move) << 6) | ((Move.promotion(move) + 1) << 12);
+    }
+
+    public static int from(int encoded) {
+        return encoded & 63;
+    }
+
+    public static int to(int encoded) {
+        return (encoded >>> 6) & 63;
+    }
+
+    public static int promotion(int encoded) {
+        return (encoded >>> 12) - 1;
+    }
+
+    public static int entry(int count, int verdict) {
+        return count | (verdict << 8);
+    }
+
+    public static int count(int entry) {
+        return entry & 0xFF;
+    }
+
+    public static int verdict(int entry) {
+        return entry >>> 8;
+    }
+
+    public long getProbes() {
+        return probes.sum();
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getStores() {
+        return stores.sum();
+    }
+
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    public double getHitRate() {
+        long probesCount = probes.sum();
+        return probesCount == 0? 0.0 : (double) hits.sum() / probesCount;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("probes %d hits %d (%.1f%%) stores %d rejected %d",
+                getProbes(), getHits(), getHitRate() * 100, getStores(), getRejected());
+    }
+
+    private boolean holds(int slot, int index, long key, long data) {
+        long hash = 0L;
+        for (int m = 0, count = Math.min(slotCount(data), capacity(index)); m < count; ++m) {
+            hash = (hash ^ (slots.getShort(slot + MOVES_OFFSET + m * 2) & 0xFFFF)) * MIX;
+        }
+        return slots.getLong(slot) == (key ^ data ^ hash);
+    }
+
+    // moves an entry starting at the given slot of a bucket can hold
+    private static int capacity(int index) {
+        return ((SLOTS_PER_BUCKET - index) * SLOT_SIZE - MOVES_OFFSET) / 2;
+    }
+
+    private int bucket(long key) {
+        return ((int) (key ^ (key >>> 32)) & bucketMask) * SLOTS_PER_BUCKET * SLOT_SIZE;
+    }
+
+    private static int slotCount(long data) {
+        return (int) (data & 0xFF) - 1;
+    }
+
+    private static int slotVerdict(long data) {
+        return (int) ((data >>> 8) & 0xFF);
+    }
+
+    private static int slotGeneration(long data) {
+        return (int) ((data >>> 16) & 0xFFFF);
+    }
+}
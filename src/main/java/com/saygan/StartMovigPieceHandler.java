@@ -1,8 +1,6 @@
 package com.saygan;
 
-import static com.saygan.ChessUtils.xyToCoord;
-
-import java.util.List;
+import static com.saygan.ChessUtils.xyToSquare;
 
 import javafx.event.EventHandler;
 import javafx.scene.Cursor;
@@ -21,21 +19,18 @@ public class StartMovigPieceHandler implements EventHandler<MouseEvent> {
 
     @Override
     public void handle(MouseEvent e) {
-        ImageView piece = (ImageView) e.getTarget();
-
-        String startBoardCoord = xyToCoord(e.getX(), e.getY());
+        int square = xyToSquare(e.getX(), e.getY());
+        ImageView piece = ui.pieces[square];
 
-        engine.setFromCoord(startBoardCoord);
+        engine.setFrom(square);
 
-        ui.currentCoord = startBoardCoord;
+        ui.startMoving(piece, square);
         ui.calculateCursorOffsets(e.getX(), e.getY());
         ui.createMoveTarget();
 
-        List<String> possibleMoves = engine.getPossibleMoves();
-
-        ui.showPossibleMoves(possibleMoves);
+        ui.showPossibleMoves(engine.getPossibleMoves(), engine.getLosingMoves());
+        ui.showHangingPieces(engine.getHangingPieces());
 
-        piece.setCursor(Cursor.CLOSED_HAND);
-        piece.toFront();
+        ui.piecesLayer.setCursor(Cursor.CLOSED_HAND);
     }
 }
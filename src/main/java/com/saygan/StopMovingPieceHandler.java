@@ -1,9 +1,13 @@
 package com.saygan;
 
-import static com.saygan.ChessUtils.coordToXy;
 import static com.saygan.ChessUtils.isOutOfBorder;
-import static com.saygan.ChessUtils.xyToCoord;
+import static com.saygan.ChessUtils.squareToX;
+import static com.saygan.ChessUtils.squareToY;
+import static com.saygan.ChessUtils.xyToSquare;
 
+import com.saygan.search.SearchLimits;
+
+import javafx.application.Platform;
 import javafx.event.EventHandler;
 import javafx.scene.Cursor;
 import javafx.scene.image.ImageView;
@@ -11,6 +15,8 @@ import javafx.scene.input.MouseEvent;
 
 public class StopMovingPieceHandler implements EventHandler<MouseEvent> {
 
+    private static final SearchLimits COMPUTER_MOVE_LIMITS = SearchLimits.time(1000);
+
     private ChessUI ui;
     private ChessEngine engine;
 
@@ -21,39 +27,54 @@ public class StopMovingPieceHandler implements EventHandler<MouseEvent> {
 
     @Override
     public void handle(MouseEvent e) {
-        ImageView piece = (ImageView) e.getTarget();
+        ImageView piece = ui.stopMoving();
+        ui.piecesLayer.setCursor(Cursor.OPEN_HAND);
 
-        String newCoord = xyToCoord(e.getX(), e.getY());
-        piece.setCursor(Cursor.OPEN_HAND);
-        piece.toBack();
-
-        String coord;
-        if (isOutOfBorder(e.getX(), e.getY()) || !engine.getPossibleMoves().contains(newCoord)) {
-            coord = ui.currentCoord;
-            engine.clearCaches();
+        int square;
+        if (isOutOfBorder(e.getX(), e.getY()) || !engine.isPossibleMove(xyToSquare(e.getX(), e.getY()))) {
+            square = ui.currentSquare;
         } else {
-            coord = newCoord;
-            engine.moveCompleted(coord);
-            if(ui.pieces.remove(ui.currentCoord) == piece) {
-                ui.pieces.put(coord, piece);
+            square = xyToSquare(e.getX(), e.getY());
+            int promotion = Pieces.NONE;
+            if (engine.isPromotion(square)) {
+                promotion = Pieces.type(Pieces.fromName(ui.askForPwanPromotion(engine.getTurn())));
+            }
+            if (!engine.moveCompleted(square, promotion)) {
+                square = ui.currentSquare;
             }
         }
 
-        int xy[] = coordToXy(coord);
-        piece.setX(xy[0]);
-        piece.setY(xy[1]);
+        piece.setX(squareToX(square));
+        piece.setY(squareToY(square));
 
         ui.hidePossibleMoves();
+        ui.hideHangingPieces();
         ui.removeMoveTarget();
 
+        boolean moved = square != ui.currentSquare;
+        if (!announceResult() && moved && ui.isComputerOpponent()) {
+            ui.setThinking(true);
+            engine.searchComputerMove(COMPUTER_MOVE_LIMITS).whenComplete((result, error) -> Platform.runLater(() -> {
+                ui.setThinking(false);
+                if (result != null && engine.makeComputerMove(result)) {
+                    announceResult();
+                }
+            }));
+        }
+    }
+
+    private boolean announceResult() {
         if (engine.isInCheckMateState()) {
             ui.checkMate(engine.getWinner());
             engine.startNewGame();
+            return true;
         } else if (engine.isInCheckState()) {
             ui.declareCheck(engine.getAttackedSide());
         } else if (engine.isDraw()) {
             ui.declareDraw(engine.getDraw());
             engine.startNewGame();
+            return true;
         }
+        return false;
     }
 }
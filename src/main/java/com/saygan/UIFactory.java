@@ -11,16 +11,19 @@ import static com.saygan.Constants.SINGLE_COL;
 import static com.saygan.Constants.SINGLE_ROW;
 import static com.saygan.Constants.BOARD_PLACE_WIDTH_PX;
 
-import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
 
 import javafx.geometry.HPos;
 import javafx.geometry.Pos;
 import javafx.geometry.VPos;
+import javafx.scene.Cursor;
 import javafx.scene.Node;
+import javafx.scene.Scene;
 import javafx.scene.control.Label;
-import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
 import javafx.scene.layout.ColumnConstraints;
+import javafx.scene.layout.FlowPane;
 import javafx.scene.layout.GridPane;
 import javafx.scene.layout.RowConstraints;
 import javafx.scene.paint.Color;
@@ -31,6 +34,9 @@ import javafx.scene.shape.StrokeType;
 import javafx.scene.text.Font;
 import javafx.scene.text.FontWeight;
 import javafx.scene.text.Text;
+import javafx.stage.Modality;
+import javafx.stage.Stage;
+import javafx.stage.StageStyle;
 
 public class UIFactory {
 
@@ -52,6 +58,16 @@ public class UIFactory {
         return dot;
     }
 
+    public static Shape hangingPieceFrame() {
+        Shape cell = new Rectangle(CELL_SIZE, CELL_SIZE);
+        cell.setFill(Color.TRANSPARENT);
+        cell.setStrokeType(StrokeType.INSIDE);
+        cell.setStroke(Color.TRANSPARENT);
+        cell.setStrokeWidth(3);
+        cell.setMouseTransparent(true);
+        return cell;
+    }
+
     public static Shape target() {
         Shape cell = new Rectangle(CELL_SIZE, CELL_SIZE);
         cell.setFill(Color.color(0, 0, 0, 0));
@@ -104,12 +120,7 @@ public class UIFactory {
     }
 
     public static ImageView piece(String name) {
-        ClassLoader cl = ChessApplication.class.getClassLoader();
-        InputStream is = cl.getResourceAsStream("merida/" + name + ".png");
-        ImageView piece = new ImageView(new Image(is));
-        piece.setFitHeight(CELL_SIZE);
-        piece.setFitWidth(CELL_SIZE);
-        return piece;
+        return PieceSprites.of(CELL_SIZE).create(Pieces.fromName(name));
     }
 
     public static ColumnConstraints horizontalCoordinateConfig() {
@@ -123,4 +134,34 @@ public class UIFactory {
         rowConfig.setValignment(VPos.CENTER);
         return rowConfig;
     }
+
+    /**
+     * Shows a modal choice of the pieces a pawn of the side can turn into and returns
+     * the name of the one clicked.
+     */
+    public static String askForPromotion(Turn turn) {
+        Stage stage = new Stage();
+        FlowPane root = new FlowPane();
+        List<String> pieceNameBox = new ArrayList<>();
+
+        for(char pieceName : "QRBN".toCharArray()) {
+            char color = turn == Turn.WHITE? 'w' : 'b';
+            String pieceFullName = new String(new char[] {color, pieceName});
+            Node piece = piece(pieceFullName);
+            root.getChildren().add(piece);
+            piece.setCursor(Cursor.OPEN_HAND);
+            piece.setOnMouseClicked(e -> {
+                pieceNameBox.add(pieceFullName);
+                stage.close();
+            });
+        }
+
+        stage.setTitle("Select promotion piece");
+        stage.initStyle(StageStyle.UNDECORATED);
+        stage.initModality(Modality.APPLICATION_MODAL);
+        stage.setScene(new Scene(root, 400, 100));
+        stage.showAndWait();
+
+        return pieceNameBox.iterator().next();
+    }
 }
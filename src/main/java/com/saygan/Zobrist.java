@@ -0,0 +1,48 @@
+package com.saygan;
+
+import static com.saygan.Bitboards.SQUARES;
+
+import java.util.Random;
+
+public class Zobrist {
+
+    private static final long SEED = 0x5A7A_C4E5_5EEDL;
+
+    private static final long[][] PIECES = new long[Pieces.COUNT][SQUARES];
+    private static final long[] CASTLE_RIGHTS = new long[Position.ALL_CASTLES + 1];
+    private static final long[] IN_PASSANT_FILES = new long[8];
+    private static final long BLACK_TURN;
+
+    static {
+        // fixed seed keeps keys stable between runs, so they can be saved with the game
+        Random random = new Random(SEED);
+        for (long[] pieceKeys : PIECES) {
+            for (int square = 0; square < SQUARES; ++square) {
+                pieceKeys[square] = random.nextLong();
+            }
+        }
+        for (int castleRights = 1; castleRights < CASTLE_RIGHTS.length; ++castleRights) {
+            CASTLE_RIGHTS[castleRights] = random.nextLong();
+        }
+        for (int file = 0; file < IN_PASSANT_FILES.length; ++file) {
+            IN_PASSANT_FILES[file] = random.nextLong();
+        }
+        BLACK_TURN = random.nextLong();
+    }
+
+    public static long piece(int piece, int square) {
+        return PIECES[piece][square];
+    }
+
+    public static long castleRights(int castleRights) {
+        return CASTLE_RIGHTS[castleRights];
+    }
+
+    public static long inPassant(int inPassantTargetCell) {
+        return IN_PASSANT_FILES[Bitboards.file(inPassantTargetCell)];
+    }
+
+    public static long turn(Turn turn) {
+        return Turn.WHITE == turn? 0L : BLACK_TURN;
+    }
+}
@@ -0,0 +1,149 @@
+package com.saygan.analysis;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import com.saygan.ChessEngine;
+import com.saygan.GameListener;
+import com.saygan.PositionCache;
+import com.saygan.file.FenReader;
+
+/**
+ * Works out the legal moves and the check, mate and stalemate status of many positions at
+ * once. The positions are cut into chunks that run in parallel, each worker thread reusing
+ * one headless engine, and every chunk writes into its own primitive buffers.
+ */
+public class BatchMoveService {
+
+    private static final int CHUNK_SIZE = 1024;
+
+    private final ForkJoinPool pool;
+    private final ThreadLocal<ChessEngine> engines;
+
+    public BatchMoveService() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    public BatchMoveService(ForkJoinPool pool) {
+        this.pool = pool;
+        engines = ThreadLocal.withInitial(() -> new ChessEngine(GameListener.NONE, PositionCache.shared()));
+    }
+
+    /**
+     * Positions are given in FEN, a malformed one fails the whole batch with an IllegalArgumentException.
+     */
+    public BatchResult analyze(Stream<String> fens) {
+        long start = System.nanoTime();
+        List<String> positions = fens.collect(Collectors.toList());
+
+        List<ForkJoinTask<Chunk>> tasks = new ArrayList<>();
+        for (int from = 0; from < positions.size(); from += CHUNK_SIZE) {
+            List<String> chunk = positions.subList(from, Math.min(from + CHUNK_SIZE, positions.size()));
+            tasks.add(pool.submit(() -> analyzeChunk(chunk)));
+        }
+
+        int[] offsets = new int[positions.size() + 1];
+        byte[] statuses = new byte[positions.size()];
+        List<Chunk> chunks = new ArrayList<>(tasks.size());
+        int movesCount = 0;
+        for (ForkJoinTask<Chunk> task : tasks) {
+            Chunk chunk = task.join();
+            chunks.add(chunk);
+            movesCount += chunk.movesCount;
+        }
+
+        int[] moves = new int[movesCount];
+        int index = 0;
+        for (Chunk chunk : chunks) {
+            System.arraycopy(chunk.moves, 0, moves, offsets[index], chunk.movesCount);
+            for (int i = 0; i < chunk.size; ++i, ++index) {
+                offsets[index + 1] = offsets[index] + chunk.counts[i];
+                statuses[index] = chunk.statuses[i];
+            }
+        }
+
+        return new BatchResult(offsets, moves, statuses, System.nanoTime() - start);
+    }
+
+    private Chunk analyzeChunk(List<String> fens) {
+        ChessEngine engine = engines.get();
+        Chunk chunk = new Chunk(fens.size());
+        for (String fen : fens) {
+            engine.startGame(FenReader.read(fen));
+            chunk.add(engine);
+        }
+        return chunk;
+    }
+
+    private static class Chunk {
+
+        private final int[] counts;
+        private final byte[] statuses;
+        private int[] moves;
+        private int movesCount;
+        private int size;
+
+        Chunk(int positions) {
+            counts = new int[positions];
+            statuses = new byte[positions];
+            moves = new int[positions * 40];
+        }
+
+        void add(ChessEngine engine) {
+            int count = engine.getLegalMovesCount();
+            if (movesCount + count > moves.length) {
+                moves = Arrays.copyOf(moves, Math.max(moves.length * 2, movesCount + count));
+            }
+            for (int i = 0; i < count; ++i) {
+                moves[movesCount++] = engine.getLegalMove(i);
+            }
+            counts[size] = count;
+            statuses[size] = status(engine);
+            ++size;
+        }
+
+        private byte status(ChessEngine engine) {
+            byte status = 0;
+            if (engine.isInCheckState()) {
+                status |= BatchResult.CHECK;
+            }
+            if (engine.isInCheckMateState()) {
+                status |= BatchResult.MATE;
+            }
+            if (engine.getLegalMovesCount() == 0 && !engine.isInCheckState()) {
+                status |= BatchResult.STALEMATE;
+            }
+            return status;
+        }
+    }
+
+    // usage: BatchMoveService <file with one fen per line>
+    public static void main(String[] args) throws IOException {
+        try (Stream<String> lines = Files.lines(Paths.get(args[0]))) {
+            BatchResult result = new BatchMoveService().analyze(lines.filter(line -> !line.trim().isEmpty()));
+
+            long mates = 0;
+            long stalemates = 0;
+            for (int i = 0; i < result.size(); ++i) {
+                mates += result.isMate(i)? 1 : 0;
+                stalemates += result.isStalemate(i)? 1 : 0;
+            }
+
+            System.out.println("Positions: " + result.size());
+            System.out.println("Moves: " + result.getMovesCount());
+            System.out.println("Mates: " + mates);
+            System.out.println("Stalemates: " + stalemates);
+            System.out.println("Time: " + result.getTimeNanos() / 1_000_000 + " ms");
+            System.out.println("Positions per second: " + result.getPositionsPerSecond());
+            System.out.println("Move cache: " + PositionCache.shared());
+        }
+    }
+}
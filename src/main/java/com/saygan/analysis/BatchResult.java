@@ -0,0 +1,60 @@
+package com.saygan.analysis;
+
+/**
+ * Legal moves and status of every position of a batch, in input order. The moves of
+ * position i are the packed moves from offset(i) to offset(i + 1) of one shared array.
+ */
+public class BatchResult {
+
+    public static final byte CHECK = 1;
+    public static final byte MATE = 2;
+    public static final byte STALEMATE = 4;
+
+    private final int[] offsets;
+    private final int[] moves;
+    private final byte[] statuses;
+    private final long timeNanos;
+
+    BatchResult(int[] offsets, int[] moves, byte[] statuses, long timeNanos) {
+        this.offsets = offsets;
+        this.moves = moves;
+        this.statuses = statuses;
+        this.timeNanos = timeNanos;
+    }
+
+    public int size() {
+        return statuses.length;
+    }
+
+    public int getMovesCount(int position) {
+        return offsets[position + 1] - offsets[position];
+    }
+
+    public int getMove(int position, int index) {
+        return moves[offsets[position] + index];
+    }
+
+    public int getMovesCount() {
+        return moves.length;
+    }
+
+    public boolean isCheck(int position) {
+        return (statuses[position] & CHECK) != 0;
+    }
+
+    public boolean isMate(int position) {
+        return (statuses[position] & MATE) != 0;
+    }
+
+    public boolean isStalemate(int position) {
+        return (statuses[position] & STALEMATE) != 0;
+    }
+
+    public long getTimeNanos() {
+        return timeNanos;
+    }
+
+    public long getPositionsPerSecond() {
+        return (long) (size() / Math.max(timeNanos / 1e9, 1e-9));
+    }
+}
@@ -0,0 +1,253 @@
+package com.saygan.analysis;
+
+import java.util.Arrays;
+
+import com.saygan.Bitboards;
+import com.saygan.Move;
+import com.saygan.MoveGenerator;
+import com.saygan.Position;
+import com.saygan.file.GameState;
+
+/**
+ * Variations branching off a starting position. Nodes are keyed by the position key, so
+ * lines that transpose into each other share one node and everything below it. Nodes and
+ * the moves between them live in parallel primitive arrays and are walked by index:
+ *
+ * <pre>
+ * for (int edge = tree.firstEdge(node); edge != GameTree.NONE; edge = tree.nextEdge(edge)) {
+ *     visit(tree.edgeMove(edge), tree.edgeChild(edge));
+ * }
+ * </pre>
+ *
+ * A line that repeats a position links back to the node already there, so walkers going
+ * down the whole graph have to remember what they have visited. Not thread safe.
+ */
+public class GameTree {
+
+    public static final int NONE = -1;
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final MoveGenerator moveGenerator;
+    private final int[] legalMoves;
+
+    // per node: position key and its first outgoing move
+    private long[] keys;
+    private int[] firstEdges;
+    private int nodesCount;
+
+    // per edge: the move, the node it leads to and the next move of the same parent
+    private int[] edgeMoves;
+    private int[] edgeChildren;
+    private int[] nextEdges;
+    private int edgesCount;
+
+    // open addressing from position key to node, slots hold node + 1 so zero means empty
+    private long[] indexKeys;
+    private int[] indexNodes;
+
+    // the position being explored and the nodes leading to it from the root
+    private final Position position;
+    private int[] path;
+    private int depth;
+
+    public GameTree(GameState start) {
+        moveGenerator = new MoveGenerator();
+        legalMoves = new int[Move.MAX_MOVES];
+
+        keys = new long[INITIAL_CAPACITY];
+        firstEdges = new int[INITIAL_CAPACITY];
+        edgeMoves = new int[INITIAL_CAPACITY];
+        edgeChildren = new int[INITIAL_CAPACITY];
+        nextEdges = new int[INITIAL_CAPACITY];
+        indexKeys = new long[2 * INITIAL_CAPACITY];
+        indexNodes = new int[2 * INITIAL_CAPACITY];
+        path = new int[INITIAL_CAPACITY];
+
+        position = new Position(start);
+        path[0] = addNode(position.getKey());
+    }
+
+    public int getRoot() {
+        return path[0];
+    }
+
+    public int getCurrent() {
+        return path[depth];
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    public Position getPosition() {
+        return new Position(position);
+    }
+
+    /**
+     * Plays a move from the current position, adding it to the tree unless it is
+     * already there, and returns the node it leads to.
+     */
+    public int play(int from, int to, int promotion) {
+        int count = moveGenerator.generateMoves(position, legalMoves);
+        for (int i = 0; i < count; ++i) {
+            int move = legalMoves[i];
+            if (Move.from(move) == from && Move.to(move) == to && Move.promotion(move) == promotion) {
+                return play(move);
+            }
+        }
+        throw new IllegalArgumentException("Illegal move " + Bitboards.coord(from) + Bitboards.coord(to));
+    }
+
+    /**
+     * Same as {@link #play(int, int, int)} for a move known to be legal here.
+     */
+    public int play(int move) {
+        int parent = path[depth];
+        position.makeMove(move);
+
+        int child = find(position.getKey());
+        if (child == NONE) {
+            child = addNode(position.getKey());
+        }
+        if (findEdge(parent, move) == NONE) {
+            addEdge(parent, move, child);
+        }
+
+        if (++depth == path.length) {
+            path = Arrays.copyOf(path, 2 * path.length);
+        }
+        path[depth] = child;
+        return child;
+    }
+
+    public void back() {
+        if (depth == 0) {
+            throw new IllegalStateException("Already at the root");
+        }
+        position.unmakeMove();
+        --depth;
+    }
+
+    public void toRoot() {
+        while (depth > 0) {
+            back();
+        }
+    }
+
+    public int find(long key) {
+        int mask = indexKeys.length - 1;
+        for (int slot = hash(key) & mask; indexNodes[slot] != 0; slot = (slot + 1) & mask) {
+            if (indexKeys[slot] == key) {
+                return indexNodes[slot] - 1;
+            }
+        }
+        return NONE;
+    }
+
+    public long getKey(int node) {
+        return keys[node];
+    }
+
+    public int firstEdge(int node) {
+        return firstEdges[node];
+    }
+
+    public int nextEdge(int edge) {
+        return nextEdges[edge];
+    }
+
+    public int edgeMove(int edge) {
+        return edgeMoves[edge];
+    }
+
+    public int edgeChild(int edge) {
+        return edgeChildren[edge];
+    }
+
+    public int findEdge(int node, int move) {
+        for (int edge = firstEdges[node]; edge != NONE; edge = nextEdges[edge]) {
+            if (edgeMoves[edge] == move) {
+                return edge;
+            }
+        }
+        return NONE;
+    }
+
+    public int getChildrenCount(int node) {
+        int count = 0;
+        for (int edge = firstEdges[node]; edge != NONE; edge = nextEdges[edge]) {
+            ++count;
+        }
+        return count;
+    }
+
+    public int size() {
+        return nodesCount;
+    }
+
+    public int getEdgesCount() {
+        return edgesCount;
+    }
+
+    private int addNode(long key) {
+        if (nodesCount == keys.length) {
+            keys = Arrays.copyOf(keys, 2 * keys.length);
+            firstEdges = Arrays.copyOf(firstEdges, 2 * firstEdges.length);
+        }
+        int node = nodesCount++;
+        keys[node] = key;
+        firstEdges[node] = NONE;
+
+        // keep the index at most half full so probe chains stay short
+        if (2 * nodesCount > indexKeys.length) {
+            rehash(2 * indexKeys.length);
+        }
+        index(key, node);
+        return node;
+    }
+
+    private void addEdge(int parent, int move, int child) {
+        if (edgesCount == edgeMoves.length) {
+            edgeMoves = Arrays.copyOf(edgeMoves, 2 * edgeMoves.length);
+            edgeChildren = Arrays.copyOf(edgeChildren, 2 * edgeChildren.length);
+            nextEdges = Arrays.copyOf(nextEdges, 2 * nextEdges.length);
+        }
+        int edge = edgesCount++;
+        edgeMoves[edge] = move;
+        edgeChildren[edge] = child;
+        // new moves go last so variations keep the order they were entered in
+        nextEdges[edge] = NONE;
+        if (firstEdges[parent] == NONE) {
+            firstEdges[parent] = edge;
+        } else {
+            int last = firstEdges[parent];
+            while (nextEdges[last] != NONE) {
+                last = nextEdges[last];
+            }
+            nextEdges[last] = edge;
+        }
+    }
+
+    private void rehash(int capacity) {
+        indexKeys = new long[capacity];
+        indexNodes = new int[capacity];
+        for (int node = 0; node < nodesCount - 1; ++node) {
+            index(keys[node], node);
+        }
+    }
+
+    private void index(long key, int node) {
+        int mask = indexKeys.length - 1;
+        int slot = hash(key) & mask;
+        while (indexNodes[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        indexKeys[slot] = key;
+        indexNodes[slot] = node + 1;
+    }
+
+    private static int hash(long key) {
+        return (int) (key ^ (key >>> 32));
+    }
+}
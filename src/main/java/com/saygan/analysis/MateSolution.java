@@ -0,0 +1,43 @@
+package com.saygan.analysis;
+
+import com.saygan.Move;
+
+public class MateSolution {
+
+    private final int move;
+    private final int moves;
+    private final long nodes;
+
+    MateSolution(int move, int moves, long nodes) {
+        this.move = move;
+        this.moves = moves;
+        this.nodes = nodes;
+    }
+
+    public boolean isFound() {
+        return move != Move.NONE;
+    }
+
+    /**
+     * First move of the mate, {@link Move#NONE} when none was proved.
+     */
+    public int getMove() {
+        return move;
+    }
+
+    /**
+     * Moves of the mating side up to and including the mate, 0 when none was proved.
+     */
+    public int getMoves() {
+        return moves;
+    }
+
+    public long getNodes() {
+        return nodes;
+    }
+
+    @Override
+    public String toString() {
+        return isFound()? "mate in " + moves + " starting " + Move.name(move) : "no mate";
+    }
+}
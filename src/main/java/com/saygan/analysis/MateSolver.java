@@ -0,0 +1,196 @@
+package com.saygan.analysis;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.saygan.Move;
+import com.saygan.MoveGenerator;
+import com.saygan.Position;
+import com.saygan.file.FenReader;
+
+/**
+ * Proves forced mates for the side to move. The top of the move tree is split into
+ * fork-join tasks; a task that settles its parent's question (a mating move, or a reply
+ * that escapes) marks the parent decided and every task below it gives up.
+ */
+public class MateSolver {
+
+    // plies from the root that are split into tasks, deeper ones are searched in place
+    private static final int SPLIT_PLIES = 2;
+    private static final int ABANDON_CHECK_NODES = 1024;
+
+    private final ForkJoinPool pool;
+    private final MoveGenerator moveGenerator;
+    private final LongAdder nodes;
+
+    public MateSolver() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    public MateSolver(ForkJoinPool pool) {
+        this.pool = pool;
+        moveGenerator = new MoveGenerator();
+        nodes = new LongAdder();
+    }
+
+    /**
+     * Looks for the shortest mate in at most the given number of moves of the side to move.
+     */
+    public MateSolution solve(Position position, int maxMoves) {
+        nodes.reset();
+        for (int moves = 1; moves <= maxMoves; ++moves) {
+            ProofTask root = new ProofTask(null, new Position(position), Move.NONE, true, moves, 0);
+            if (pool.invoke(root)) {
+                return new MateSolution(root.provingMove, moves, nodes.sum());
+            }
+        }
+        return new MateSolution(Move.NONE, 0, nodes.sum());
+    }
+
+    private class ProofTask extends RecursiveTask<Boolean> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final ProofTask parent;
+        private final Position position;
+        private final int move;
+        // true when the mating side is to move here
+        private final boolean attacker;
+        // moves of the mating side left, counting the one it is about to make or has just made
+        private final int moves;
+        private final int ply;
+
+        private volatile boolean decided;
+        private volatile int provingMove;
+
+        private int[][] moveLists;
+        private int localNodes;
+        private boolean abandoned;
+
+        ProofTask(ProofTask parent, Position position, int move, boolean attacker, int moves, int ply) {
+            this.parent = parent;
+            this.position = position;
+            this.move = move;
+            this.attacker = attacker;
+            this.moves = moves;
+            this.ply = ply;
+        }
+
+        @Override
+        protected Boolean compute() {
+            boolean proved = ply < SPLIT_PLIES? split() : searchInPlace();
+            nodes.add(localNodes);
+
+            if (parent != null && !isAbandoned() && proved == parent.attacker) {
+                parent.provingMove = move;
+                parent.decided = true;
+            }
+            return proved;
+        }
+
+        private boolean split() {
+            int[] list = new int[Move.MAX_MOVES];
+            int count = moveGenerator.generateMoves(position, list);
+            ++localNodes;
+            if (!attacker && (count == 0 || moves == 1)) {
+                return isMate(count);
+            }
+
+            List<ProofTask> children = new ArrayList<>(count);
+            for (int i = 0; i < count; ++i) {
+                Position child = new Position(position);
+                child.makeMove(list[i]);
+                children.add(new ProofTask(this, child, list[i], !attacker, attacker? moves : moves - 1, ply + 1));
+            }
+            invokeAll(children);
+
+            // an attacker is proved by one mating move, a defender by the lack of an escape
+            return attacker == decided;
+        }
+
+        private boolean searchInPlace() {
+            moveLists = new int[2 * moves + 1][Move.MAX_MOVES];
+            return attacker? attackerMates(moves, 0) : defenderIsMated(moves, 0);
+        }
+
+        private boolean attackerMates(int movesLeft, int depth) {
+            int[] list = moveLists[depth];
+            int count = moveGenerator.generateMoves(position, list);
+            if (isAbandonedNow()) {
+                return false;
+            }
+            for (int i = 0; i < count; ++i) {
+                position.makeMove(list[i]);
+                boolean mates = defenderIsMated(movesLeft, depth + 1);
+                position.unmakeMove();
+                if (mates) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private boolean defenderIsMated(int movesLeft, int depth) {
+            int[] list = moveLists[depth];
+            int count = moveGenerator.generateMoves(position, list);
+            if (isAbandonedNow()) {
+                return false;
+            }
+            if (count == 0 || movesLeft == 1) {
+                return isMate(count);
+            }
+            for (int i = 0; i < count; ++i) {
+                position.makeMove(list[i]);
+                boolean mated = attackerMates(movesLeft - 1, depth + 1);
+                position.unmakeMove();
+                if (!mated) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private boolean isMate(int count) {
+            return count == 0 && position.isUnderCheck(position.getTurn());
+        }
+
+        private boolean isAbandonedNow() {
+            if (++localNodes % ABANDON_CHECK_NODES == 0 && isAbandoned()) {
+                abandoned = true;
+            }
+            return abandoned;
+        }
+
+        private boolean isAbandoned() {
+            for (ProofTask task = parent; task != null; task = task.parent) {
+                if (task.decided) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    // usage: MateSolver <moves> <fen> [fen ...]
+    public static void main(String[] args) {
+        int maxMoves = Integer.parseInt(args[0]);
+        MateSolver solver = new MateSolver();
+
+        long start = System.nanoTime();
+        long nodes = 0;
+        for (int i = 1; i < args.length; ++i) {
+            MateSolution solution = solver.solve(new Position(FenReader.read(args[i])), maxMoves);
+            nodes += solution.getNodes();
+            System.out.println(args[i] + ": " + solution);
+        }
+        long elapsed = System.nanoTime() - start;
+
+        System.out.println();
+        System.out.println("Nodes: " + nodes);
+        System.out.println("Time: " + elapsed / 1_000_000 + " ms");
+        System.out.println("Nodes per second: " + (long) (nodes / Math.max(elapsed / 1e9, 1e-9)));
+    }
+}
@@ -0,0 +1,79 @@
+package com.saygan.analysis;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import com.saygan.Position;
+
+/**
+ * Fixed size table of pawn structure analyses keyed by the pawn key, sized apart from the
+ * move cache. Entries are immutable, built entirely in their constructor and carry their
+ * own key, so threads share the table without locking and a slot overwritten under a
+ * reader simply reads as a miss.
+ */
+public class PawnHashTable {
+
+    private static final String SIZE_PROPERTY = "chess.pawns.entries";
+    private static final int DEFAULT_ENTRIES = 16 * 1024;
+
+    private static final PawnHashTable SHARED = new PawnHashTable(Integer.getInteger(SIZE_PROPERTY, DEFAULT_ENTRIES));
+
+    private final PawnStructure[] entries;
+    private final int mask;
+
+    private final LongAdder probes;
+    private final LongAdder hits;
+
+    public PawnHashTable(int entriesCount) {
+        int size = Integer.highestOneBit(Math.max(1, entriesCount));
+        entries = new PawnStructure[size];
+        mask = size - 1;
+        probes = new LongAdder();
+        hits = new LongAdder();
+    }
+
+    public static PawnHashTable shared() {
+        return SHARED;
+    }
+
+    /**
+     * Returns the pawn structure of the position, analyzing it only when the table
+     * does not hold it already.
+     */
+    public PawnStructure get(Position position) {
+        probes.increment();
+        long key = position.getPawnKey();
+        int index = (int) (key ^ (key >>> 32)) & mask;
+
+        PawnStructure entry = entries[index];
+        if (entry != null && entry.getKey() == key) {
+            hits.increment();
+            return entry;
+        }
+
+        entry = PawnStructure.analyze(position);
+        entries[index] = entry;
+        return entry;
+    }
+
+    public int size() {
+        return entries.length;
+    }
+
+    public long getProbes() {
+        return probes.sum();
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public double getHitRate() {
+        long probesCount = probes.sum();
+        return probesCount == 0? 0.0 : (double) hits.sum() / probesCount;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("probes %d hits %d (%.1f%%)", getProbes(), getHits(), getHitRate() * 100);
+    }
+}
@@ -0,0 +1,190 @@
+package com.saygan.analysis;
+
+import static com.saygan.Bitboards.SQUARES;
+import static com.saygan.Bitboards.bit;
+import static com.saygan.Bitboards.coord;
+import static com.saygan.Bitboards.file;
+import static com.saygan.Bitboards.first;
+import static com.saygan.Bitboards.rank;
+
+import java.util.StringJoiner;
+
+import com.saygan.Bitboards;
+import com.saygan.Pieces;
+import com.saygan.Position;
+import com.saygan.Turn;
+
+/**
+ * Pawn structure features of both sides. Depends only on where the pawns and kings stand,
+ * so one analysis serves every position with the same {@link Position#getPawnKey()}.
+ * Instances are immutable.
+ */
+public class PawnStructure {
+
+    private static final long FILE_A = 0x0101010101010101L;
+    private static final long[] FILES = new long[8];
+    private static final long[] ADJACENT_FILES = new long[8];
+    // squares strictly ahead of a square on its own and neighbouring files, per side
+    private static final long[][] FRONT_SPANS = new long[2][SQUARES];
+    // squares on neighbouring files level with or behind a square, per side
+    private static final long[][] SUPPORT_SPANS = new long[2][SQUARES];
+
+    static {
+        for (int file = 0; file < 8; ++file) {
+            FILES[file] = FILE_A << file;
+        }
+        for (int file = 0; file < 8; ++file) {
+            ADJACENT_FILES[file] = (file > 0? FILES[file - 1] : 0L) | (file < 7? FILES[file + 1] : 0L);
+        }
+        for (int square = 0; square < SQUARES; ++square) {
+            long files = FILES[file(square)] | ADJACENT_FILES[file(square)];
+            for (int other = 0; other < SQUARES; ++other) {
+                if ((files & bit(other)) == 0) {
+                    continue;
+                }
+                if (rank(other) > rank(square)) {
+                    FRONT_SPANS[Pieces.WHITE][square] |= bit(other);
+                } else if (rank(other) < rank(square)) {
+                    FRONT_SPANS[Pieces.BLACK][square] |= bit(other);
+                }
+                if (file(other) != file(square)) {
+                    if (rank(other) <= rank(square)) {
+                        SUPPORT_SPANS[Pieces.WHITE][square] |= bit(other);
+                    }
+                    if (rank(other) >= rank(square)) {
+                        SUPPORT_SPANS[Pieces.BLACK][square] |= bit(other);
+                    }
+                }
+            }
+        }
+    }
+
+    private final long key;
+    private final long[] passed = new long[2];
+    private final long[] isolated = new long[2];
+    private final long[] doubled = new long[2];
+    private final long[] backward = new long[2];
+    private final int[] islands = new int[2];
+    private final int[] shelter = new int[2];
+
+    // everything is filled in here, so the final fields publish the arrays' contents
+    // to threads that find the instance through a plain read
+    private PawnStructure(Position position) {
+        key = position.getPawnKey();
+        for (Turn side : Turn.values()) {
+            analyze(position, side);
+        }
+    }
+
+    public static PawnStructure analyze(Position position) {
+        return new PawnStructure(position);
+    }
+
+    private void analyze(Position position, Turn side) {
+        int us = side.ordinal();
+        Turn opponent = Turn.WHITE == side? Turn.BLACK : Turn.WHITE;
+        long own = position.pieces(side, Pieces.PAWN);
+        long enemy = position.pieces(opponent, Pieces.PAWN);
+
+        for (long pawns = own; pawns != 0; pawns &= pawns - 1) {
+            int square = first(pawns);
+            long file = FILES[file(square)];
+            long ahead = FRONT_SPANS[us][square] & file;
+
+            if ((own & ahead) != 0) {
+                doubled[us] |= bit(square);
+            } else if ((enemy & FRONT_SPANS[us][square]) == 0) {
+                passed[us] |= bit(square);
+            }
+
+            if ((own & ADJACENT_FILES[file(square)]) == 0) {
+                isolated[us] |= bit(square);
+            } else if ((own & SUPPORT_SPANS[us][square]) == 0) {
+                // no neighbour can come level with it and the square in front is held by an enemy pawn
+                int stop = Turn.WHITE == side? square + 8 : square - 8;
+                if (stop >= 0 && stop < SQUARES && (Bitboards.pawnAttacks(side, stop) & enemy) != 0) {
+                    backward[us] |= bit(square);
+                }
+            }
+        }
+
+        boolean onIsland = false;
+        for (int file = 0; file < 8; ++file) {
+            boolean hasPawns = (own & FILES[file]) != 0;
+            if (hasPawns && !onIsland) {
+                ++islands[us];
+            }
+            onIsland = hasPawns;
+        }
+
+        int king = position.kingSquare(side);
+        if (king != Bitboards.NO_SQUARE) {
+            // own pawns on the king's and neighbouring files within two ranks in front of it
+            long front = FRONT_SPANS[us][king];
+            for (int square = king, step = 0; step < 2; ++step) {
+                square += Turn.WHITE == side? 8 : -8;
+                if (square < 0 || square >= SQUARES) {
+                    break;
+                }
+                shelter[us] += Long.bitCount(own & front & rankOf(square));
+            }
+        }
+    }
+
+    private static long rankOf(int square) {
+        return 0xFFL << (8 * rank(square));
+    }
+
+    public long getKey() {
+        return key;
+    }
+
+    public long getPassed(Turn side) {
+        return passed[side.ordinal()];
+    }
+
+    public long getIsolated(Turn side) {
+        return isolated[side.ordinal()];
+    }
+
+    public long getDoubled(Turn side) {
+        return doubled[side.ordinal()];
+    }
+
+    public long getBackward(Turn side) {
+        return backward[side.ordinal()];
+    }
+
+    public int getIslands(Turn side) {
+        return islands[side.ordinal()];
+    }
+
+    public int getShelter(Turn side) {
+        return shelter[side.ordinal()];
+    }
+
+    /**
+     * One line summary of a side, e.g. "passed:d5 isolated:a2,h2 doubled: backward: islands:3 shelter:2".
+     */
+    public String describe(Turn side) {
+        return "passed:" + squares(getPassed(side))
+             + " isolated:" + squares(getIsolated(side))
+             + " doubled:" + squares(getDoubled(side))
+             + " backward:" + squares(getBackward(side))
+             + " islands:" + getIslands(side)
+             + " shelter:" + getShelter(side);
+    }
+
+    private static String squares(long bitboard) {
+        StringJoiner joiner = new StringJoiner(",");
+        for (long squares = bitboard; squares != 0; squares &= squares - 1) {
+            joiner.add(coord(first(squares)));
+        }
+        return joiner.toString();
+    }
+
+    @Override
+    public String toString() {
+        return "white " + describe(Turn.WHITE) + "\nblack " + describe(Turn.BLACK);
+    }
+}
@@ -0,0 +1,116 @@
+package com.saygan.analysis;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+import com.saygan.Move;
+import com.saygan.MoveGenerator;
+import com.saygan.Position;
+import com.saygan.file.FenReader;
+
+public class Perft {
+
+    private final MoveGenerator moveGenerator;
+    private final PerftTable table;
+
+    public Perft() {
+        this(0);
+    }
+
+    public Perft(int hashSizeMb) {
+        moveGenerator = new MoveGenerator();
+        table = hashSizeMb > 0? new PerftTable(hashSizeMb) : null;
+    }
+
+    public long perft(Position position, int depth) {
+        if (depth < 0) {
+            throw new IllegalArgumentException("Perft needs a depth of at least 0, got " + depth);
+        }
+        return perft(position, depth, new int[Math.max(depth, 1)][Move.MAX_MOVES]);
+    }
+
+    private long perft(Position position, int depth, int[][] moveLists) {
+        if (depth == 0) {
+            return 1;
+        }
+
+        if (table != null && depth > 1) {
+            long count = table.probe(position.getKey(), depth);
+            if (count >= 0) {
+                return count;
+            }
+        }
+
+        // one list per remaining depth, reused by every node at that depth
+        int[] moves = moveLists[depth - 1];
+        int count = moveGenerator.generateMoves(position, moves);
+        if (depth == 1) {
+            return count;
+        }
+
+        long nodes = 0;
+        for (int i = 0; i < count; ++i) {
+            position.makeMove(moves[i]);
+            nodes += perft(position, depth - 1, moveLists);
+            position.unmakeMove();
+        }
+
+        if (table != null) {
+            table.store(position.getKey(), depth, nodes);
+        }
+        return nodes;
+    }
+
+    public Map<String, Long> divide(Position position, int depth) {
+        return divide(position, depth, ForkJoinPool.commonPool());
+    }
+
+    public Map<String, Long> divide(Position position, int depth, ForkJoinPool pool) {
+        if (depth < 1) {
+            throw new IllegalArgumentException("Divide needs a depth of at least 1, got " + depth);
+        }
+        int[] moves = new int[Move.MAX_MOVES];
+        int count = moveGenerator.generateMoves(position, moves);
+
+        Map<String, ForkJoinTask<Long>> tasks = new LinkedHashMap<>();
+        for (int i = 0; i < count; ++i) {
+            Position rootPosition = new Position(position);
+            rootPosition.makeMove(moves[i]);
+            tasks.put(Move.name(moves[i]), pool.submit(() -> perft(rootPosition, depth - 1)));
+        }
+
+        Map<String, Long> divide = new LinkedHashMap<>();
+        for (Map.Entry<String, ForkJoinTask<Long>> task : tasks.entrySet()) {
+            divide.put(task.getKey(), task.getValue().join());
+        }
+        return divide;
+    }
+
+    // usage: Perft <depth> [fen] [hash size in mb]
+    public static void main(String[] args) {
+        int depth = args.length > 0? Integer.parseInt(args[0]) : 5;
+        String fen = args.length > 1? args[1] : FenReader.START_POSITION;
+        int hashSizeMb = args.length > 2? Integer.parseInt(args[2]) : 0;
+
+        Position position = new Position(FenReader.read(fen));
+        Perft perft = new Perft(hashSizeMb);
+
+        long start = System.nanoTime();
+        Map<String, Long> divide = perft.divide(position, depth);
+        long elapsed = System.nanoTime() - start;
+
+        long nodes = 0;
+        for (Map.Entry<String, Long> entry : divide.entrySet()) {
+            System.out.println(entry.getKey() + ": " + entry.getValue());
+            nodes += entry.getValue();
+        }
+
+        System.out.println();
+        System.out.println("Moves: " + divide.size());
+        System.out.println("Nodes: " + nodes);
+        System.out.println("Time: " + elapsed / 1_000_000 + " ms");
+        System.out.println("Nodes per second: " + (long) (nodes / Math.max(elapsed / 1e9, 1e-9)));
+    }
+}
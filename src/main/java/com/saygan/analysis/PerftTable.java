@@ -0,0 +1,35 @@
+package com.saygan.analysis;
+
+class PerftTable {
+
+    private static final long DEPTH_MIX = 0x9E3779B97F4A7C15L;
+
+    // two longs per slot: key xor count, then count, so a torn write from
+    // another thread never verifies and is treated as a miss
+    private final long[] entries;
+    private final int mask;
+
+    PerftTable(int sizeMb) {
+        int slots = Integer.highestOneBit(Math.max(1, sizeMb) * 1024 * 1024 / 16);
+        entries = new long[slots * 2];
+        mask = slots - 1;
+    }
+
+    long probe(long key, int depth) {
+        long hashed = key ^ (depth * DEPTH_MIX);
+        int slot = index(hashed);
+        long count = entries[slot + 1];
+        return (entries[slot] ^ count) == hashed? count : -1;
+    }
+
+    void store(long key, int depth, long count) {
+        long hashed = key ^ (depth * DEPTH_MIX);
+        int slot = index(hashed);
+        entries[slot] = hashed ^ count;
+        entries[slot + 1] = count;
+    }
+
+    private int index(long hashed) {
+        return ((int) hashed & mask) << 1;
+    }
+}
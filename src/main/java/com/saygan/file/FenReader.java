@@ -0,0 +1,70 @@
+package com.saygan.file;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import com.saygan.Turn;
+
+public class FenReader {
+
+    public static final String START_POSITION = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+
+    private static final int LEFT_ROOK = 0;
+    private static final int KING = 1;
+    private static final int RIGHT_ROOK = 2;
+
+    public static GameState read(String fen) {
+        String[] fields = fen.trim().split("\\s+");
+        if(fields.length < 4) {
+            throw new IllegalArgumentException("Not a FEN position: " + fen);
+        }
+
+        GameState state = new GameState("w".equals(fields[1])? Turn.WHITE : Turn.BLACK);
+
+        Map<String, String> white = new HashMap<>();
+        Map<String, String> black = new HashMap<>();
+        readPieces(fields[0], white, black);
+        state.setWhite(white);
+        state.setBlack(black);
+
+        state.setWhiteCastleConditions(readCastleConditions(fields[2], 'K', 'Q'));
+        state.setBlackCastleConditions(readCastleConditions(fields[2], 'k', 'q'));
+        state.setInPassantTargetCell("-".equals(fields[3])? null : fields[3]);
+        state.setPossibleDrawMovesCount(fields.length > 4? Integer.parseInt(fields[4]) : 0);
+        state.setRepetitionKeys(new long[0]);
+
+        return state;
+    }
+
+    private static void readPieces(String placement, Map<String, String> white, Map<String, String> black) {
+        String[] ranks = placement.split("/");
+        if(ranks.length != 8) {
+            throw new IllegalArgumentException("Not a FEN piece placement: " + placement);
+        }
+
+        for(int row = 0; row < ranks.length; ++row) {
+            char digit = (char) ('8' - row);
+            char letter = 'a';
+            for(char symbol : ranks[row].toCharArray()) {
+                if(Character.isDigit(symbol)) {
+                    letter += symbol - '0';
+                    continue;
+                }
+                String coord = new String(new char[] { letter++, digit });
+                if(Character.isUpperCase(symbol)) {
+                    white.put(coord, "w" + symbol);
+                } else {
+                    black.put(coord, "b" + Character.toUpperCase(symbol));
+                }
+            }
+        }
+    }
+
+    private static boolean[] readCastleConditions(String castles, char rightCastle, char leftCastle) {
+        boolean[] castleConditions = new boolean[3];
+        castleConditions[RIGHT_ROOK] = castles.indexOf(rightCastle) < 0;
+        castleConditions[LEFT_ROOK] = castles.indexOf(leftCastle) < 0;
+        castleConditions[KING] = castleConditions[RIGHT_ROOK] && castleConditions[LEFT_ROOK];
+        return castleConditions;
+    }
+}
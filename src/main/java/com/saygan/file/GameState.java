@@ -48,7 +48,7 @@ public class GameState {
         INITIAL_STATE.black.put("g8", "bN");
         INITIAL_STATE.black.put("h8", "bR");
         INITIAL_STATE.black = Collections.unmodifiableMap(INITIAL_STATE.black);
-        INITIAL_STATE.snapshots = Collections.emptyMap();
+        INITIAL_STATE.repetitionKeys = new long[0];
 
         INITIAL_STATE.whiteCastleConditions = new boolean[3];
         INITIAL_STATE.blackCastleConditions = new boolean[3];
@@ -57,11 +57,15 @@ public class GameState {
     private final Turn turn;
     private Turn underCheck;
     private int possibleDrawMovesCount;
+    private String inPassantTargetCell;
     private Map<String, String> white;
     private Map<String, String> black;
     private boolean[] whiteCastleConditions;
     private boolean[] blackCastleConditions;
-    private Map<String, Integer> snapshots;
+    private long[] repetitionKeys;
+    // derived from the position, only written out for readers of the file
+    private String whitePawnStructure;
+    private String blackPawnStructure;
 
     public GameState(Turn turn) {
         this.turn = turn;
@@ -87,6 +91,14 @@ public class GameState {
         return possibleDrawMovesCount;
     }
 
+    public void setInPassantTargetCell(String inPassantTargetCell) {
+        this.inPassantTargetCell = inPassantTargetCell;
+    }
+
+    public String getInPassantTargetCell() {
+        return inPassantTargetCell;
+    }
+
     public void setWhite(Map<String, String> white) {
         this.white = white;
     }
@@ -119,11 +131,27 @@ public class GameState {
         return blackCastleConditions;
     }
 
-    public void setSnapshots(Map<String, Integer> snapshots) {
-        this.snapshots = snapshots;
+    public void setRepetitionKeys(long[] repetitionKeys) {
+        this.repetitionKeys = repetitionKeys;
+    }
+
+    public long[] getRepetitionKeys() {
+        return repetitionKeys;
+    }
+
+    public void setWhitePawnStructure(String whitePawnStructure) {
+        this.whitePawnStructure = whitePawnStructure;
+    }
+
+    public String getWhitePawnStructure() {
+        return whitePawnStructure;
+    }
+
+    public void setBlackPawnStructure(String blackPawnStructure) {
+        this.blackPawnStructure = blackPawnStructure;
     }
 
-    public Map<String, Integer> getSnapshots() {
-        return snapshots;
+    public String getBlackPawnStructure() {
+        return blackPawnStructure;
     }
 }
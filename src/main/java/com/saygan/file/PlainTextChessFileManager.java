@@ -24,32 +24,25 @@ public class PlainTextChessFileManager implements ChessFileManager {
         write("turn", gameState.getTurn());
         write("underCheck", gameState.getUnderCheck());
         write("possibleDrawMovesCount", gameState.getPossibleDrawMovesCount());
+        write("inPassantTargetCell", gameState.getInPassantTargetCell());
         write("white", serialize(gameState.getWhite()));
         write("black", serialize(gameState.getBlack()));
         write("whiteCastleConditions", serialize(gameState.getWhiteCastleConditions()));
         write("blackCastleConditions", serialize(gameState.getBlackCastleConditions()));
-        write("snapshots", serializeSnapshots(gameState.getSnapshots()));
+        write("repetitionKeys", serialize(gameState.getRepetitionKeys()));
+        if(gameState.getWhitePawnStructure() != null) {
+            write("whitePawnStructure", gameState.getWhitePawnStructure());
+            write("blackPawnStructure", gameState.getBlackPawnStructure());
+        }
         doClose(writer);
     }
 
-    private String serializeSnapshots(Map<String, Integer> snapshots) {
-
-        if(snapshots.isEmpty()) {
-            return "";
-        }
-
-        StringBuilder sb = new StringBuilder();
-
-        for(Entry<String, Integer> entry : snapshots.entrySet()) {
-            sb.append(entry.getKey());
-            sb.append(":");
-            sb.append(entry.getValue());
-            sb.append(",");
+    private String serialize(long[] repetitionKeys) {
+        StringJoiner joiner = new StringJoiner(",");
+        for(long repetitionKey : repetitionKeys) {
+            joiner.add(Long.toHexString(repetitionKey));
         }
-
-        sb.deleteCharAt(sb.length() - 1);
-
-        return sb.toString();
+        return joiner.toString();
     }
 
     private String serialize(boolean[] castleConditions) {
@@ -113,23 +106,26 @@ public class PlainTextChessFileManager implements ChessFileManager {
 
         state.setUnderCheck(deserializeTurn(cache.get("underCheck")));
         state.setPossibleDrawMovesCount(deserializeInt(cache.get("possibleDrawMovesCount")));
+        state.setInPassantTargetCell(deserializeCell(cache.get("inPassantTargetCell")));
         state.setWhite(deserializeTeam('w', cache.get("white")));
         state.setBlack(deserializeTeam('b', cache.get("black")));
         state.setWhiteCastleConditions(deserializeCastleCondition(cache.get("whiteCastleConditions")));
         state.setBlackCastleConditions(deserializeCastleCondition(cache.get("blackCastleConditions")));
-        state.setSnapshots(deserializeSnapShots(cache.get("snapshots")));
+        state.setRepetitionKeys(deserializeRepetitionKeys(cache.get("repetitionKeys")));
 
         return state;
     }
 
-    private Map<String, Integer> deserializeSnapShots(String snapshotsRaw) {
-        String[] snapshotsToCount = snapshotsRaw.split(",");
-        Map<String, Integer> snapshots = new HashMap<>();
-        for(String snapshotToCountRaw : snapshotsToCount) {
-            String[] snapshotToCount = snapshotToCountRaw.split(":");
-            snapshots.put(snapshotToCount[0], Integer.parseInt(snapshotToCount[1]));
+    private long[] deserializeRepetitionKeys(String repetitionKeysRaw) {
+        if(repetitionKeysRaw == null || repetitionKeysRaw.isEmpty()) {
+            return new long[0];
+        }
+        String[] keysRaw = repetitionKeysRaw.split(",");
+        long[] repetitionKeys = new long[keysRaw.length];
+        for(int i = 0; i < keysRaw.length; ++i) {
+            repetitionKeys[i] = Long.parseUnsignedLong(keysRaw[i], 16);
         }
-        return snapshots;
+        return repetitionKeys;
     }
 
     private boolean[] deserializeCastleCondition(String castleConditionsRawRaw) {
@@ -149,6 +145,10 @@ public class PlainTextChessFileManager implements ChessFileManager {
         return teamMap;
     }
 
+    private String deserializeCell(String rawCell) {
+        return rawCell == null || rawCell.equals("null")? null : rawCell;
+    }
+
     private int deserializeInt(String rawTurn) {
         return Integer.parseInt(rawTurn);
     }
@@ -0,0 +1,315 @@
+package com.saygan.search;
+
+import static com.saygan.Bitboards.SQUARES;
+
+import java.util.Arrays;
+
+import com.saygan.Move;
+import com.saygan.MoveGenerator;
+import com.saygan.Pieces;
+import com.saygan.Position;
+import com.saygan.Turn;
+import com.saygan.file.FenReader;
+
+/**
+ * Principal variation search with iterative deepening and a captures only quiescence search.
+ * An instance keeps its killer and history tables between iterations and is not thread safe.
+ */
+public class Search {
+
+    public static final int MATE = 30000;
+
+    private static final int INFINITY = 32000;
+    private static final int MAX_PLY = 128;
+    private static final int DRAW_MOVES_COUNT = 50 * 2;
+    private static final int TIME_CHECK_NODES = 2048;
+
+    private static final int PV_MOVE_SCORE = 1_000_000;
+    private static final int CAPTURE_SCORE = 100_000;
+    private static final int FIRST_KILLER_SCORE = 90_000;
+    private static final int SECOND_KILLER_SCORE = 80_000;
+    private static final int MAX_HISTORY_SCORE = 50_000;
+
+    private final MoveGenerator moveGenerator;
+
+    // one move list and its ordering scores per ply, reused by every node at that ply
+    private final int[][] moves;
+    private final int[][] moveScores;
+
+    // triangular principal variation table, line of ply n starts at pv[n][n]
+    private final int[][] pv;
+    private final int[] pvLength;
+    private int[] previousPv;
+
+    private final int[][] killers;
+    private final int[][] history;
+
+    private long nodes;
+    private long deadline;
+    private boolean stopped;
+
+    public Search() {
+        moveGenerator = new MoveGenerator();
+        moves = new int[MAX_PLY][Move.MAX_MOVES];
+        moveScores = new int[MAX_PLY][Move.MAX_MOVES];
+        pv = new int[MAX_PLY][MAX_PLY];
+        pvLength = new int[MAX_PLY];
+        killers = new int[MAX_PLY][2];
+        history = new int[Pieces.COUNT][SQUARES];
+    }
+
+    public SearchResult search(Position root, SearchLimits limits) {
+        Position position = new Position(root);
+        long start = System.currentTimeMillis();
+        deadline = limits.getTimeMillis() > Long.MAX_VALUE - start? Long.MAX_VALUE : start + limits.getTimeMillis();
+        nodes = 0;
+        stopped = false;
+        previousPv = new int[0];
+        for (int[] plyKillers : killers) {
+            Arrays.fill(plyKillers, Move.NONE);
+        }
+        for (int[] pieceHistory : history) {
+            Arrays.fill(pieceHistory, 0);
+        }
+
+        int[] rootMoves = new int[Move.MAX_MOVES];
+        int rootMovesCount = moveGenerator.generateMoves(position, rootMoves);
+        int bestMove = rootMovesCount == 0? Move.NONE : rootMoves[0];
+        int score = 0;
+        int completedDepth = 0;
+
+        for (int depth = 1; depth <= limits.getDepth() && rootMovesCount > 0; ++depth) {
+            int value = search(position, depth, -INFINITY, INFINITY, 0);
+            if (stopped) {
+                break;
+            }
+
+            previousPv = Arrays.copyOf(pv[0], pvLength[0]);
+            bestMove = previousPv[0];
+            score = value;
+            completedDepth = depth;
+
+            if (isMateScore(value) || rootMovesCount == 1) {
+                break;
+            }
+        }
+
+        return new SearchResult(bestMove, score, completedDepth, previousPv, nodes, System.currentTimeMillis() - start);
+    }
+
+    public static boolean isMateScore(int score) {
+        return Math.abs(score) >= MATE - MAX_PLY;
+    }
+
+    private int search(Position position, int depth, int alpha, int beta, int ply) {
+        pvLength[ply] = ply;
+
+        if (ply > 0 && isDraw(position)) {
+            return 0;
+        }
+        if (depth <= 0) {
+            return quiescence(position, alpha, beta, ply);
+        }
+        if (countNode() || ply >= MAX_PLY - 1) {
+            return evaluate(position);
+        }
+
+        boolean inCheck = position.isUnderCheck(position.getTurn());
+        if (inCheck) {
+            ++depth;
+        }
+
+        int[] plyMoves = moves[ply];
+        int count = moveGenerator.generateMoves(position, plyMoves);
+        if (count == 0) {
+            return inCheck? -MATE + ply : 0;
+        }
+        scoreMoves(ply, count, ply < previousPv.length? previousPv[ply] : Move.NONE);
+
+        int best = -INFINITY;
+        for (int i = 0; i < count; ++i) {
+            int move = pickMove(ply, i, count);
+
+            position.makeMove(move);
+            int value;
+            if (i == 0) {
+                value = -search(position, depth - 1, -beta, -alpha, ply + 1);
+            } else {
+                // everything after the first move is expected to fail low, prove it with a null window
+                value = -search(position, depth - 1, -alpha - 1, -alpha, ply + 1);
+                if (value > alpha && value < beta) {
+                    value = -search(position, depth - 1, -beta, -alpha, ply + 1);
+                }
+            }
+            position.unmakeMove();
+
+            if (stopped) {
+                return 0;
+            }
+            if (value > best) {
+                best = value;
+            }
+            if (value > alpha) {
+                alpha = value;
+                updatePv(ply, move);
+                if (alpha >= beta) {
+                    if (!isTactical(move)) {
+                        rememberCutoff(ply, move, depth);
+                    }
+                    break;
+                }
+            }
+        }
+        return best;
+    }
+
+    private int quiescence(Position position, int alpha, int beta, int ply) {
+        pvLength[ply] = ply;
+
+        if (countNode() || ply >= MAX_PLY - 1) {
+            return evaluate(position);
+        }
+
+        boolean inCheck = position.isUnderCheck(position.getTurn());
+        int[] plyMoves = moves[ply];
+        int count = moveGenerator.generateMoves(position, plyMoves);
+        if (count == 0) {
+            return inCheck? -MATE + ply : 0;
+        }
+
+        // out of check the side to move may always stop capturing, in check it has to answer it
+        if (!inCheck) {
+            int standPat = evaluate(position);
+            if (standPat >= beta) {
+                return standPat;
+            }
+            alpha = Math.max(alpha, standPat);
+        }
+        scoreMoves(ply, count, Move.NONE);
+
+        for (int i = 0; i < count; ++i) {
+            int move = pickMove(ply, i, count);
+            if (!inCheck && !isTactical(move)) {
+                break;
+            }
+
+            position.makeMove(move);
+            int value = -quiescence(position, -beta, -alpha, ply + 1);
+            position.unmakeMove();
+
+            if (stopped) {
+                return 0;
+            }
+            if (value > alpha) {
+                alpha = value;
+                updatePv(ply, move);
+                if (alpha >= beta) {
+                    break;
+                }
+            }
+        }
+        return alpha;
+    }
+
+    private boolean countNode() {
+        if (++nodes % TIME_CHECK_NODES == 0 && System.currentTimeMillis() >= deadline) {
+            stopped = true;
+        }
+        return stopped;
+    }
+
+    private void scoreMoves(int ply, int count, int pvMove) {
+        int[] plyMoves = moves[ply];
+        int[] scores = moveScores[ply];
+        for (int i = 0; i < count; ++i) {
+            int move = plyMoves[i];
+            if (move == pvMove) {
+                scores[i] = PV_MOVE_SCORE;
+            } else if (isTactical(move)) {
+                // most valuable victim first, least valuable attacker to break ties
+                int victim = Move.isCapture(move)? Pieces.value(Pieces.type(Move.captured(move))) : 0;
+                int promotion = Move.isPromotion(move)? Pieces.value(Move.promotion(move)) : 0;
+                scores[i] = CAPTURE_SCORE + (victim + promotion) * 8 - Pieces.type(Move.piece(move));
+            } else if (move == killers[ply][0]) {
+                scores[i] = FIRST_KILLER_SCORE;
+            } else if (move == killers[ply][1]) {
+                scores[i] = SECOND_KILLER_SCORE;
+            } else {
+                scores[i] = history[Move.piece(move)][Move.to(move)];
+            }
+        }
+    }
+
+    /**
+     * Moves the best scored of the not yet searched moves to the given index, so a
+     * cutoff after the first few moves spares sorting the rest.
+     */
+    private int pickMove(int ply, int index, int count) {
+        int[] plyMoves = moves[ply];
+        int[] scores = moveScores[ply];
+        int best = index;
+        for (int i = index + 1; i < count; ++i) {
+            if (scores[i] > scores[best]) {
+                best = i;
+            }
+        }
+        swap(plyMoves, index, best);
+        swap(scores, index, best);
+        return plyMoves[index];
+    }
+
+    private void swap(int[] array, int i, int j) {
+        int tmp = array[i];
+        array[i] = array[j];
+        array[j] = tmp;
+    }
+
+    private void updatePv(int ply, int move) {
+        pv[ply][ply] = move;
+        System.arraycopy(pv[ply + 1], ply + 1, pv[ply], ply + 1, pvLength[ply + 1] - ply - 1);
+        pvLength[ply] = Math.max(pvLength[ply + 1], ply + 1);
+    }
+
+    private void rememberCutoff(int ply, int move, int depth) {
+        if (killers[ply][0] != move) {
+            killers[ply][1] = killers[ply][0];
+            killers[ply][0] = move;
+        }
+
+        int[] pieceHistory = history[Move.piece(move)];
+        pieceHistory[Move.to(move)] += depth * depth;
+        if (pieceHistory[Move.to(move)] > MAX_HISTORY_SCORE) {
+            for (int[] scores : history) {
+                for (int square = 0; square < SQUARES; ++square) {
+                    scores[square] /= 2;
+                }
+            }
+        }
+    }
+
+    private boolean isTactical(int move) {
+        return Move.isCapture(move) || Move.isPromotion(move);
+    }
+
+    private boolean isDraw(Position position) {
+        return position.getPossibleDrawMovesCount() >= DRAW_MOVES_COUNT
+            || position.countRepetitions() > 0
+            || position.isNotEnoughMaterial();
+    }
+
+    private int evaluate(Position position) {
+        int score = position.getScore();
+        return Turn.WHITE == position.getTurn()? score : -score;
+    }
+
+    // usage: Search <depth> [fen], prints time to each depth
+    public static void main(String[] args) {
+        int depth = args.length > 0? Integer.parseInt(args[0]) : 6;
+        String fen = args.length > 1? args[1] : FenReader.START_POSITION;
+
+        Position position = new Position(FenReader.read(fen));
+        for (int d = 1; d <= depth; ++d) {
+            System.out.println(new Search().search(position, SearchLimits.depth(d)));
+        }
+    }
+}
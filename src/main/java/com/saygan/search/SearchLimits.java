@@ -0,0 +1,33 @@
+package com.saygan.search;
+
+public class SearchLimits {
+
+    public static final int MAX_DEPTH = 64;
+
+    private final int depth;
+    private final long timeMillis;
+
+    public SearchLimits(int depth, long timeMillis) {
+        if (depth < 1 || timeMillis < 1) {
+            throw new IllegalArgumentException("Search needs a positive depth and time, got " + depth + " and " + timeMillis);
+        }
+        this.depth = Math.min(depth, MAX_DEPTH);
+        this.timeMillis = timeMillis;
+    }
+
+    public static SearchLimits depth(int depth) {
+        return new SearchLimits(depth, Long.MAX_VALUE);
+    }
+
+    public static SearchLimits time(long timeMillis) {
+        return new SearchLimits(MAX_DEPTH, timeMillis);
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    public long getTimeMillis() {
+        return timeMillis;
+    }
+}
@@ -0,0 +1,63 @@
+package com.saygan.search;
+
+import com.saygan.Move;
+
+public class SearchResult {
+
+    private final int bestMove;
+    private final int score;
+    private final int depth;
+    private final int[] principalVariation;
+    private final long nodes;
+    private final long timeMillis;
+
+    SearchResult(int bestMove, int score, int depth, int[] principalVariation, long nodes, long timeMillis) {
+        this.bestMove = bestMove;
+        this.score = score;
+        this.depth = depth;
+        this.principalVariation = principalVariation;
+        this.nodes = nodes;
+        this.timeMillis = timeMillis;
+    }
+
+    public int getBestMove() {
+        return bestMove;
+    }
+
+    /**
+     * Centipawns from the side to move's point of view, see {@link Search#isMateScore(int)}.
+     */
+    public int getScore() {
+        return score;
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    public int[] getPrincipalVariation() {
+        return principalVariation.clone();
+    }
+
+    public long getNodes() {
+        return nodes;
+    }
+
+    public long getTimeMillis() {
+        return timeMillis;
+    }
+
+    public long getNodesPerSecond() {
+        return nodes * 1000 / Math.max(timeMillis, 1);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder pv = new StringBuilder();
+        for (int move : principalVariation) {
+            pv.append(' ').append(Move.name(move));
+        }
+        return "depth " + depth + " score " + score + " nodes " + nodes + " time " + timeMillis
+             + " nps " + getNodesPerSecond() + " pv" + pv;
+    }
+}
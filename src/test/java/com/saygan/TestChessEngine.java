@@ -0,0 +1,116 @@
+package com.saygan;
+
+import static com.saygan.Bitboards.square;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.saygan.file.FenReader;
+import com.saygan.search.SearchLimits;
+import com.saygan.search.SearchResult;
+
+public class TestChessEngine {
+
+    private ChessEngine engine;
+    private List<String> events;
+
+    @Before
+    public void setUp() {
+        events = new ArrayList<>();
+        engine = new ChessEngine(new GameListener() {
+            @Override
+            public void pieceRemoved(int square) {
+                events.add("-" + Bitboards.coord(square));
+            }
+
+            @Override
+            public void pieceMoved(int from, int to) {
+                events.add(Bitboards.coord(from) + Bitboards.coord(to));
+            }
+        });
+        engine.startNewGame();
+        events.clear();
+    }
+
+    @Test
+    public void shouldPlayWithoutUserInterface() {
+        assertThat(engine.getLegalMovesCount(), equalTo(20));
+
+        play("f2f3", "e7e5", "g2g4", "d8h4");
+
+        assertThat(events.toString(), equalTo("[f2f3, e7e5, g2g4, d8h4]"));
+        assertThat(engine.isInCheckMateState(), equalTo(true));
+        assertThat(engine.getWinner(), equalTo(Turn.BLACK));
+        assertThat(engine.getLegalMovesCount(), equalTo(0));
+    }
+
+    @Test
+    public void shouldReportCapturesAndCastlesInOrder() {
+        play("e2e4", "d7d5", "e4d5", "g8f6", "g1f3", "f6d5", "f1c4", "d5b4", "e1g1");
+
+        assertThat(events.subList(2, 3).toString(), equalTo("[-d5]"));
+        assertThat(events.subList(events.size() - 2, events.size()).toString(), equalTo("[e1g1, h1f1]"));
+        assertThat(engine.getTurn(), equalTo(Turn.BLACK));
+    }
+
+    @Test
+    public void shouldExposeDestinationsOfSelectedPiece() {
+        engine.setFrom(square("g1"));
+
+        assertThat(engine.getPossibleMoves(), equalTo(Bitboards.bit(square("f3")) | Bitboards.bit(square("h3"))));
+        assertThat(engine.isPossibleMove(square("f3")), equalTo(true));
+        assertThat(engine.isPossibleMove(square("g3")), equalTo(false));
+
+        assertThat(engine.moveCompleted(square("f3"), Pieces.NONE), equalTo(true));
+
+        assertThat(events.toString(), equalTo("[g1f3]"));
+    }
+
+    @Test
+    public void shouldIgnoreMoveNotMatchingAnyLegalMove() {
+        engine.setFrom(square("e2"));
+
+        assertThat(engine.moveCompleted(square("e5"), Pieces.NONE), equalTo(false));
+        assertThat(engine.moveCompleted(square("e4"), Pieces.QUEEN), equalTo(false));
+
+        assertThat(events.isEmpty(), equalTo(true));
+        assertThat(engine.getTurn(), equalTo(Turn.WHITE));
+    }
+
+    @Test
+    public void shouldNotPlayReplyFoundForEarlierPosition() {
+        SearchResult result = engine.searchComputerMove(SearchLimits.depth(2)).join();
+
+        play("e2e4");
+
+        assertThat(engine.makeComputerMove(result), equalTo(false));
+        assertThat(engine.getTurn(), equalTo(Turn.BLACK));
+
+        assertThat(engine.makeComputerMove(engine.searchComputerMove(SearchLimits.depth(2)).join()), equalTo(true));
+        assertThat(engine.getTurn(), equalTo(Turn.WHITE));
+    }
+
+    @Test
+    public void shouldDeclareLongGameOnHundredthPlyWithoutCaptureOrPawnMove() {
+        engine.startGame(FenReader.read("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 97 49"));
+
+        play("g1f3", "g8f6");
+        assertThat(engine.isDraw(), equalTo(false));
+
+        play("b1c3");
+        assertThat(engine.getDraw(), equalTo(Draw.LONG_GAME));
+    }
+
+    private void play(String ... moves) {
+        for (String move : moves) {
+            int found = engine.findMove(square(move.substring(0, 2)), square(move.substring(2, 4)), Pieces.NONE);
+            assertThat(move, found != Move.NONE, equalTo(true));
+            engine.makeMove(found);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.saygan;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import org.junit.Test;
+
+import com.saygan.file.FenReader;
+
+public class TestPonderer {
+
+    private static final String KIWIPETE = "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1";
+
+    private PositionCache cache = new PositionCache(1);
+    private Ponderer ponderer = new Ponderer(cache);
+    private MoveGenerator moveGenerator = new MoveGenerator();
+
+    @Test
+    public void shouldCacheEveryReply() throws Exception {
+        Position position = new Position(FenReader.read(KIWIPETE));
+
+        ponderer.ponder(position).get();
+
+        int[] moves = new int[Move.MAX_MOVES];
+        int[] replies = new int[Move.MAX_MOVES];
+        int[] cached = new int[Move.MAX_MOVES];
+        int count = moveGenerator.generateMoves(position, moves);
+        for (int i = 0; i < count; ++i) {
+            position.makeMove(moves[i]);
+            int entry = cache.probe(position.getKey(), cached);
+            assertThat(entry, not(equalTo(PositionCache.MISS)));
+            assertThat(PositionCache.count(entry), equalTo(moveGenerator.generateMoves(position, replies)));
+            assertThat(PositionCache.verdict(entry), equalTo(ChessEngine.verdict(position)));
+            position.unmakeMove();
+        }
+    }
+
+    @Test
+    public void shouldLeaveGivenPositionUntouched() throws Exception {
+        Position position = new Position(FenReader.read(KIWIPETE));
+        long key = position.getKey();
+
+        ponderer.ponder(position);
+        ponderer.stop();
+        ponderer.ponder(position).get();
+
+        assertThat(position.getKey(), equalTo(key));
+    }
+
+    @Test
+    public void shouldAnswerMoveFromCacheAfterPondering() throws Exception {
+        ChessEngine engine = new ChessEngine(GameListener.NONE, cache);
+        engine.startGame(FenReader.read("rnbqkbnr/pppp1ppp/8/4p3/6P1/5P2/PPPPP2P/RNBQKBNR b KQkq - 0 2"));
+        ponderer.ponder(new Position(FenReader.read("rnbqkbnr/pppp1ppp/8/4p3/6P1/5P2/PPPPP2P/RNBQKBNR b KQkq - 0 2"))).get();
+        long hits = cache.getHits();
+
+        engine.makeMove(engine.findMove(Bitboards.square("d8"), Bitboards.square("h4"), Pieces.NONE));
+
+        assertThat(cache.getHits(), equalTo(hits + 1));
+        assertThat(engine.isInCheckMateState(), equalTo(true));
+    }
+}
@@ -0,0 +1,221 @@
+package com.saygan;
+
+import static com.saygan.Bitboards.NO_SQUARE;
+import static com.saygan.Bitboards.square;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.saygan.file.FenReader;
+import com.saygan.file.GameState;
+
+public class TestPosition {
+
+    private Position position;
+
+    @Before
+    public void setUp() {
+        GameState state = new GameState(Turn.WHITE);
+        state.setWhite(map("e1", "wK", "a1", "wR", "h1", "wR", "e5", "wP", "b7", "wP"));
+        state.setBlack(map("e8", "bK", "a8", "bR", "h8", "bR", "d7", "bP"));
+        state.setWhiteCastleConditions(new boolean[] {false, false, false});
+        state.setBlackCastleConditions(new boolean[] {false, false, false});
+        state.setPossibleDrawMovesCount(7);
+        state.setRepetitionKeys(new long[0]);
+        position = new Position(state);
+    }
+
+    @Test
+    public void shouldApplyCastleInPassantAndPromotion() {
+        position.makeMove(square("e1"), square("g1"), Pieces.NONE);
+        position.makeMove(square("d7"), square("d5"), Pieces.NONE);
+
+        assertThat(position.getInPassantTargetCell(), equalTo(square("d6")));
+        assertThat(position.getPossibleDrawMovesCount(), equalTo(0));
+
+        position.makeMove(square("e5"), square("d6"), Pieces.NONE);
+        position.makeMove(square("e8"), square("c8"), Pieces.NONE);
+        position.makeMove(square("b7"), square("a8"), Pieces.QUEEN);
+
+        assertThat(position.getTeam(Turn.WHITE), equalTo(map("g1", "wK", "f1", "wR", "a1", "wR", "d6", "wP", "a8", "wQ")));
+        assertThat(position.getTeam(Turn.BLACK), equalTo(map("c8", "bK", "d8", "bR", "h8", "bR")));
+        assertThat(position.getCastleConditions(Turn.WHITE), equalTo(new boolean[] {true, true, true}));
+        assertThat(position.getCastleConditions(Turn.BLACK), equalTo(new boolean[] {true, true, true}));
+        assertThat(position.getInPassantTargetCell(), equalTo(NO_SQUARE));
+        assertThat(position.getTurn(), equalTo(Turn.BLACK));
+    }
+
+    @Test
+    public void shouldRestorePositionExactlyOnUnmake() {
+        int[][] moves = new int[][] {
+            { square("e1"), square("c1"), Pieces.NONE },
+            { square("d7"), square("d5"), Pieces.NONE },
+            { square("e5"), square("d6"), Pieces.NONE },
+            { square("h8"), square("h2"), Pieces.NONE },
+            { square("b7"), square("a8"), Pieces.KNIGHT },
+            { square("e8"), square("f8"), Pieces.NONE }
+        };
+
+        List<String> snapshots = new ArrayList<>();
+        for (int[] move : moves) {
+            snapshots.add(snapshot(position));
+            position.makeMove(move[0], move[1], move[2]);
+        }
+
+        for (int i = moves.length - 1; i >= 0; --i) {
+            position.unmakeMove();
+            assertThat(snapshot(position), equalTo(snapshots.get(i)));
+        }
+    }
+
+    @Test
+    public void shouldCountRepetitionsSinceLastIrreversibleMove() {
+        long initialKey = position.getKey();
+
+        for (int i = 0; i < 2; ++i) {
+            position.makeMove(square("a1"), square("b1"), Pieces.NONE);
+            position.makeMove(square("a8"), square("b8"), Pieces.NONE);
+            position.makeMove(square("b1"), square("a1"), Pieces.NONE);
+            position.makeMove(square("b8"), square("a8"), Pieces.NONE);
+        }
+
+        assertThat(position.getKey(), equalTo(initialKey ^ Zobrist.castleRights(Position.ALL_CASTLES)
+                                                        ^ Zobrist.castleRights(Position.WHITE_RIGHT_CASTLE | Position.BLACK_RIGHT_CASTLE)));
+        assertThat(position.countRepetitions(), equalTo(1));
+
+        position.trimHistory();
+
+        assertThat(position.countRepetitions(), equalTo(1));
+        assertThat(position.getRepetitionKeys().length, equalTo(8));
+
+        position.makeMove(square("e5"), square("e6"), Pieces.NONE);
+
+        assertThat(position.countRepetitions(), equalTo(0));
+        assertThat(position.getRepetitionKeys().length, equalTo(0));
+    }
+
+    @Test
+    public void shouldTrackKingSquaresAndAttacks() {
+        assertThat(position.isSquareAttacked(square("d6"), Turn.WHITE), equalTo(true));
+        assertThat(position.isSquareAttacked(square("a7"), Turn.WHITE), equalTo(true));
+        assertThat(position.isSquareAttacked(square("e3"), Turn.BLACK), equalTo(false));
+        assertThat(position.isSquareAttacked(square("c6"), Turn.BLACK), equalTo(true));
+
+        position.makeMove(square("e1"), square("g1"), Pieces.NONE);
+        position.makeMove(square("a8"), square("a1"), Pieces.NONE);
+
+        assertThat(position.kingSquare(Turn.WHITE), equalTo(square("g1")));
+        assertThat(position.isUnderCheck(Turn.WHITE), equalTo(false));
+        assertThat(position.isSquareAttacked(square("f1"), Turn.BLACK), equalTo(true));
+
+        position.makeMove(square("f1"), square("f8"), Pieces.NONE);
+
+        assertThat(position.isUnderCheck(Turn.BLACK), equalTo(true));
+
+        position.unmakeMove();
+        position.unmakeMove();
+        position.unmakeMove();
+
+        assertThat(position.kingSquare(Turn.WHITE), equalTo(square("e1")));
+        assertThat(position.kingSquare(Turn.BLACK), equalTo(square("e8")));
+    }
+
+    @Test
+    public void shouldEvaluateExchangesWithXrays() {
+        // undefended pawn
+        Position exchange = new Position(FenReader.read("1k1r4/1pp4p/p7/4p3/8/P5P1/1PP4P/2K1R3 w - - 0 1"));
+        assertThat(exchange.see(square("e1"), square("e5")), equalTo(100));
+
+        // pawn defended by a knight and a queen, the rooks and the queen behind them x-ray in
+        exchange = new Position(FenReader.read("1k1r3q/1ppn3p/p4b2/4p3/8/P2N2P1/1PP1R1BP/2K1Q3 w - - 0 1"));
+        assertThat(exchange.see(square("d3"), square("e5")), equalTo(-220));
+
+        // doubled rooks take a pawn defended by a rook, the one behind recaptures
+        exchange = new Position(FenReader.read("4k3/4r3/8/4p3/8/8/4R3/4RK2 w - - 0 1"));
+        assertThat(exchange.see(square("e2"), square("e5")), equalTo(100));
+        // but not one defended by a pawn
+        exchange = new Position(FenReader.read("4k3/8/3p4/4p3/8/8/4R3/4RK2 w - - 0 1"));
+        assertThat(exchange.see(square("e2"), square("e5")), equalTo(-400));
+
+        // queen takes a defended pawn
+        exchange = new Position(FenReader.read("4k3/3p4/4p3/8/8/8/8/4QK2 w - - 0 1"));
+        assertThat(exchange.see(square("e1"), square("e6")), equalTo(-800));
+
+        // a quiet move onto a square guarded by a pawn
+        exchange = new Position(FenReader.read("4k3/8/3p4/8/8/8/8/2B1K3 w - - 0 1"));
+        assertThat(exchange.see(square("c1"), square("e3")), equalTo(0));
+        assertThat(exchange.see(square("c1"), square("g5")), equalTo(0));
+        exchange = new Position(FenReader.read("4k3/8/3p4/8/2N5/8/8/4K3 w - - 0 1"));
+        assertThat(exchange.see(square("c4"), square("e5")), equalTo(-320));
+    }
+
+    @Test
+    public void shouldKeepMaterialAndScoreUpToDate() {
+        Position played = new Position(FenReader.read(FenReader.START_POSITION));
+        long initialMaterial = played.getMaterial();
+        int initialScore = played.getScore();
+
+        assertThat(initialScore, equalTo(0));
+        assertThat(played.count(Turn.WHITE, Pieces.PAWN), equalTo(8));
+        assertThat(played.count(Turn.BLACK, Pieces.KNIGHT), equalTo(2));
+        assertThat(played.getPhase(), equalTo(PieceSquareTables.MAX_PHASE));
+
+        String[] moves = { "e2e4", "d7d5", "e4d5", "g8f6", "f1b5", "c7c6", "d5c6", "d8d2", "c1d2", "e7e5", "c6b7", "e8e7", "b7a8" };
+        for (String move : moves) {
+            int promotion = move.equals("b7a8")? Pieces.KNIGHT : Pieces.NONE;
+            played.makeMove(square(move.substring(0, 2)), square(move.substring(2, 4)), promotion);
+        }
+        Position loaded = new Position(FenReader.read("Nnb2b1r/p3kppp/5n2/1B2p3/8/8/PPPB1PPP/RN1QK1NR b KQ - 0 7"));
+
+        assertThat(played.getMaterial(), equalTo(loaded.getMaterial()));
+        assertThat(played.getScore(), equalTo(loaded.getScore()));
+        assertThat(played.getPhase(), equalTo(loaded.getPhase()));
+        assertThat(played.count(Turn.WHITE, Pieces.KNIGHT), equalTo(3));
+        assertThat(played.count(Turn.BLACK, Pieces.QUEEN), equalTo(0));
+        assertThat(played.getScore() > 0, equalTo(true));
+
+        for (int i = 0; i < moves.length; ++i) {
+            played.unmakeMove();
+        }
+        assertThat(played.getMaterial(), equalTo(initialMaterial));
+        assertThat(played.getScore(), equalTo(initialScore));
+    }
+
+    @Test
+    public void shouldDetectNotEnoughMaterial() {
+        assertThat(new Position(FenReader.read("4k3/8/3n4/8/8/3N4/8/4K3 w - - 0 1")).isNotEnoughMaterial(), equalTo(true));
+        assertThat(new Position(FenReader.read("4k3/8/3b4/8/8/3B4/8/4K3 w - - 0 1")).isNotEnoughMaterial(), equalTo(true));
+        assertThat(new Position(FenReader.read("4k3/8/8/8/8/3NB3/8/4K3 w - - 0 1")).isNotEnoughMaterial(), equalTo(false));
+        assertThat(new Position(FenReader.read("4k3/8/8/8/8/3R4/8/4K3 w - - 0 1")).isNotEnoughMaterial(), equalTo(false));
+    }
+
+    private String snapshot(Position position) {
+        StringBuilder sb = new StringBuilder();
+        for (int square = 0; square < Bitboards.SQUARES; ++square) {
+            int piece = position.pieceAt(square);
+            sb.append(piece == Pieces.NONE? ".." : Pieces.name(piece));
+        }
+        sb.append(position.getTurn());
+        sb.append(Arrays.toString(position.getCastleConditions(Turn.WHITE)));
+        sb.append(Arrays.toString(position.getCastleConditions(Turn.BLACK)));
+        sb.append(position.getInPassantTargetCell());
+        sb.append(position.getPossibleDrawMovesCount());
+        return sb.toString();
+    }
+
+    private Map<String, String> map(String ... elements) {
+        Map<String, String> team = new HashMap<>();
+        for (int i = 0; i < elements.length; i += 2) {
+            team.put(elements[i], elements[i + 1]);
+        }
+        return team;
+    }
+}
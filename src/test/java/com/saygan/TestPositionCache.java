@@ -0,0 +1,109 @@
+package com.saygan;
+
+import static com.saygan.Bitboards.square;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import org.junit.Test;
+
+public class TestPositionCache {
+
+    private static final int BUCKETS_IN_ONE_MB = 2048;
+
+    private PositionCache cache = new PositionCache(1);
+
+    @Test
+    public void shouldReturnStoredMovesAndVerdict() {
+        int[] moves = new int[] { encode("e2", "e4"), encode("g1", "f3"), encode("b7", "b8", Pieces.KNIGHT) };
+        cache.store(42L, PositionCache.CHECK, moves, moves.length);
+
+        int[] cached = new int[Move.MAX_MOVES];
+        int entry = cache.probe(42L, cached);
+
+        assertThat(PositionCache.count(entry), equalTo(3));
+        assertThat(PositionCache.verdict(entry), equalTo(PositionCache.CHECK));
+        assertThat(PositionCache.to(cached[1]), equalTo(square("f3")));
+        assertThat(PositionCache.promotion(cached[2]), equalTo(Pieces.KNIGHT));
+        assertThat(PositionCache.promotion(cached[0]), equalTo(Pieces.NONE));
+        assertThat(cache.probe(43L, cached), equalTo(PositionCache.MISS));
+    }
+
+    @Test
+    public void shouldKeepPositionsWithoutMoves() {
+        int[] cached = new int[Move.MAX_MOVES];
+        assertThat(cache.probe(0L, cached), equalTo(PositionCache.MISS));
+
+        cache.store(0L, PositionCache.CHECK, cached, 0);
+
+        assertThat(cache.probe(0L, cached), equalTo(PositionCache.entry(0, PositionCache.CHECK)));
+    }
+
+    @Test
+    public void shouldKeepMoveListsLongerThanOneSlot() {
+        int[] moves = new int[218];
+        for (int i = 0; i < moves.length; ++i) {
+            moves[i] = PositionCache.encode(Move.of(i % 64, (i * 7) % 64, Pieces.QUEEN, Pieces.NONE, Pieces.NONE, 0));
+        }
+        cache.store(42L, 0, moves, moves.length);
+
+        int[] cached = new int[Move.MAX_MOVES];
+        assertThat(PositionCache.count(cache.probe(42L, cached)), equalTo(218));
+        assertThat(cached[217], equalTo(moves[217]));
+
+        cache.store(43L, 0, new int[Move.MAX_MOVES], PositionCache.MAX_MOVES + 1);
+
+        assertThat(cache.probe(43L, cached), equalTo(PositionCache.MISS));
+        assertThat(cache.getRejected(), equalTo(1L));
+        assertThat(cache.getStores(), equalTo(1L));
+    }
+
+    @Test
+    public void shouldReplaceOlderGenerationFirst() {
+        int[] moves = new int[] { encode("e2", "e4") };
+        long first = 7L;
+        long second = first + BUCKETS_IN_ONE_MB;
+        long third = first + 2 * BUCKETS_IN_ONE_MB;
+
+        cache.store(first, 0, moves, 1);
+        cache.newGeneration();
+        cache.store(second, 0, moves, 1);
+        cache.store(third, 0, moves, 1);
+
+        int[] cached = new int[Move.MAX_MOVES];
+        assertThat(cache.probe(first, cached), equalTo(PositionCache.MISS));
+        assertThat(cache.probe(second, cached), equalTo(PositionCache.entry(1, 0)));
+        assertThat(cache.probe(third, cached), equalTo(PositionCache.entry(1, 0)));
+        assertThat(cache.getHits(), equalTo(2L));
+        assertThat(cache.getProbes(), equalTo(3L));
+    }
+
+    @Test
+    public void shouldShareMovesBetweenEngines() {
+        ChessEngine firstEngine = new ChessEngine(GameListener.NONE, cache);
+        ChessEngine secondEngine = new ChessEngine(GameListener.NONE, cache);
+        firstEngine.startNewGame();
+        play(firstEngine, "e2e4", "e7e5", "g1f3");
+        long hits = cache.getHits();
+
+        secondEngine.startNewGame();
+        play(secondEngine, "e2e4", "e7e5", "g1f3");
+
+        assertThat(cache.getHits() - hits, equalTo(4L));
+        assertThat(secondEngine.getLegalMovesCount(), equalTo(firstEngine.getLegalMovesCount()));
+        assertThat(secondEngine.findMove(square("b8"), square("c6"), Pieces.NONE) != Move.NONE, equalTo(true));
+    }
+
+    private void play(ChessEngine engine, String ... moves) {
+        for (String move : moves) {
+            engine.makeMove(engine.findMove(square(move.substring(0, 2)), square(move.substring(2, 4)), Pieces.NONE));
+        }
+    }
+
+    private int encode(String from, String to) {
+        return encode(from, to, Pieces.NONE);
+    }
+
+    private int encode(String from, String to, int promotion) {
+        return PositionCache.encode(Move.of(square(from), square(to), Pieces.PAWN, Pieces.NONE, promotion, 0));
+    }
+}
@@ -0,0 +1,54 @@
+package com.saygan.analysis;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+
+import com.saygan.Move;
+import com.saygan.file.FenReader;
+
+public class TestBatchMoveService {
+
+    private static final String KIWIPETE = "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1";
+    private static final String FOOLS_MATE = "rnb1kbnr/pppp1ppp/8/4p3/6Pq/5P2/PPPPP2P/RNBQKBNR w KQkq - 1 3";
+    private static final String STALEMATE = "k7/2Q5/1K6/8/8/8/8/8 b - - 0 1";
+    private static final String CHECK = "4k3/8/8/8/8/8/8/4R1K1 b - - 0 1";
+
+    private BatchMoveService service = new BatchMoveService(new ForkJoinPool(4));
+
+    @Test
+    public void shouldReportMovesAndStatusOfEveryPosition() {
+        List<String> fens = new ArrayList<>();
+        // enough positions for several chunks, so their order has to be kept across workers
+        for (int i = 0; i < 1000; ++i) {
+            fens.add(FenReader.START_POSITION);
+            fens.add(KIWIPETE);
+            fens.add(FOOLS_MATE);
+            fens.add(STALEMATE);
+            fens.add(CHECK);
+        }
+
+        BatchResult result = service.analyze(fens.stream());
+
+        assertThat(result.size(), equalTo(5000));
+        assertThat(result.getMovesCount(), equalTo(1000 * (20 + 48 + 0 + 0 + 4)));
+        for (int i = 0; i < fens.size(); i += 5) {
+            assertThat(result.getMovesCount(i), equalTo(20));
+            assertThat(result.getMovesCount(i + 1), equalTo(48));
+            assertThat(result.isCheck(i + 1), equalTo(false));
+            assertThat(result.isMate(i + 2), equalTo(true));
+            assertThat(result.isCheck(i + 2), equalTo(true));
+            assertThat(result.isStalemate(i + 3), equalTo(true));
+            assertThat(result.isMate(i + 3), equalTo(false));
+            assertThat(result.isCheck(i + 4), equalTo(true));
+            assertThat(result.isStalemate(i + 4), equalTo(false));
+        }
+        assertThat(Move.name(result.getMove(0, 0)), equalTo("b1a3"));
+        assertThat(result.getPositionsPerSecond() > 0, equalTo(true));
+    }
+}
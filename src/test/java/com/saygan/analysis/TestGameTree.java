@@ -0,0 +1,120 @@
+package com.saygan.analysis;
+
+import static com.saygan.Bitboards.square;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.saygan.Move;
+import com.saygan.MoveGenerator;
+import com.saygan.Pieces;
+import com.saygan.file.FenReader;
+
+public class TestGameTree {
+
+    private GameTree tree;
+
+    @Before
+    public void setUp() {
+        tree = new GameTree(FenReader.read(FenReader.START_POSITION));
+    }
+
+    @Test
+    public void shouldShareTransposedPositions() {
+        int first = play("g1f3", "g8f6", "b1c3");
+        tree.toRoot();
+        int second = play("b1c3", "g8f6", "g1f3");
+
+        assertThat(second, equalTo(first));
+        assertThat(tree.size(), equalTo(6));
+        assertThat(tree.getEdgesCount(), equalTo(6));
+        assertThat(tree.getChildrenCount(tree.getRoot()), equalTo(2));
+        assertThat(tree.getKey(first), equalTo(tree.getPosition().getKey()));
+    }
+
+    @Test
+    public void shouldNotDuplicateReplayedMoves() {
+        play("e2e4", "e7e5");
+        tree.toRoot();
+        int node = play("e2e4", "e7e5");
+
+        assertThat(tree.size(), equalTo(3));
+        assertThat(tree.getEdgesCount(), equalTo(2));
+        assertThat(tree.getDepth(), equalTo(2));
+        assertThat(tree.getCurrent(), equalTo(node));
+    }
+
+    @Test
+    public void shouldWalkVariationsInTheOrderTheyWereAdded() {
+        play("e2e4");
+        tree.back();
+        play("d2d4");
+        tree.back();
+        play("c2c4");
+        tree.back();
+
+        StringBuilder moves = new StringBuilder();
+        for (int edge = tree.firstEdge(tree.getRoot()); edge != GameTree.NONE; edge = tree.nextEdge(edge)) {
+            moves.append(Move.name(tree.edgeMove(edge))).append(' ');
+            assertThat(tree.edgeChild(edge), not(equalTo(tree.getRoot())));
+        }
+        assertThat(moves.toString(), equalTo("e2e4 d2d4 c2c4 "));
+        assertThat(tree.getPosition().getKey(), equalTo(tree.getKey(tree.getRoot())));
+    }
+
+    @Test
+    public void shouldLinkRepeatedPositionBackToItsNode() {
+        int node = play("g1f3", "g8f6", "f3g1", "f6g8");
+
+        assertThat(node, equalTo(tree.getRoot()));
+        assertThat(tree.size(), equalTo(4));
+        assertThat(tree.getDepth(), equalTo(4));
+    }
+
+    @Test
+    public void shouldGrowPastInitialCapacity() {
+        expand(3);
+        int nodes = tree.size();
+        int edges = tree.getEdgesCount();
+
+        // 8902 lines of three plies, transpositions among them share their nodes
+        assertThat(edges, equalTo(20 + 400 + 8902));
+        assertThat(nodes < 1 + edges, equalTo(true));
+
+        expand(3);
+        assertThat(tree.size(), equalTo(nodes));
+        assertThat(tree.getEdgesCount(), equalTo(edges));
+        for (int node = 0; node < nodes; ++node) {
+            assertThat(tree.find(tree.getKey(node)), equalTo(node));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectIllegalMove() {
+        tree.play(square("e2"), square("e5"), Pieces.NONE);
+    }
+
+    private void expand(int plies) {
+        if (plies == 0) {
+            return;
+        }
+        int[] moves = new int[Move.MAX_MOVES];
+        int count = new MoveGenerator().generateMoves(tree.getPosition(), moves);
+        for (int i = 0; i < count; ++i) {
+            tree.play(moves[i]);
+            expand(plies - 1);
+            tree.back();
+        }
+    }
+
+    private int play(String ... moves) {
+        int node = GameTree.NONE;
+        for (String move : moves) {
+            node = tree.play(square(move.substring(0, 2)), square(move.substring(2, 4)), Pieces.NONE);
+        }
+        return node;
+    }
+}
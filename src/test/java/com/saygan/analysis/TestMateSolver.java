@@ -0,0 +1,47 @@
+package com.saygan.analysis;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+
+import com.saygan.Move;
+import com.saygan.Position;
+import com.saygan.file.FenReader;
+
+public class TestMateSolver {
+
+    private MateSolver solver = new MateSolver(new ForkJoinPool(4));
+
+    @Test
+    public void shouldFindShortestMate() {
+        assertThat(solve("r1bqkb1r/pppp1ppp/2n2n2/4p2Q/2B1P3/8/PPPP1PPP/RNB1K1NR w KQkq - 4 4", 3), equalTo("mate in 1 starting h5f7"));
+        assertThat(solve("r2qkb1r/pp2nppp/3p4/2pNN1B1/2BnP3/3P4/PPP2PPP/R2bK2R w KQkq - 1 0", 3), equalTo("mate in 2 starting d5f6"));
+        assertThat(solve("1k5r/pP3ppp/3p2b1/1BN1n3/1Q2P3/P1B5/KP3P1P/7q w - - 1 0", 3), equalTo("mate in 3 starting c5a6"));
+    }
+
+    @Test
+    public void shouldNotMistakeStalemateForMate() {
+        // Qc7 and Qb7 both leave the king without moves, only the second is check
+        MateSolution solution = solver.solve(new Position(FenReader.read("k7/8/1K6/8/8/8/8/2Q5 w - - 0 1")), 1);
+
+        assertThat(solution.getMoves(), equalTo(1));
+        assertThat(Move.name(solution.getMove()).equals("c1c7"), equalTo(false));
+        assertThat(solve("k7/2Q5/1K6/8/8/8/8/8 b - - 0 1", 2), equalTo("no mate"));
+    }
+
+    @Test
+    public void shouldReportNoMateBeyondLimit() {
+        MateSolution solution = solver.solve(new Position(FenReader.read("1k5r/pP3ppp/3p2b1/1BN1n3/1Q2P3/P1B5/KP3P1P/7q w - - 1 0")), 2);
+
+        assertThat(solution.isFound(), equalTo(false));
+        assertThat(solution.getNodes() > 0, equalTo(true));
+        assertThat(solve(FenReader.START_POSITION, 2), equalTo("no mate"));
+    }
+
+    private String solve(String fen, int maxMoves) {
+        return solver.solve(new Position(FenReader.read(fen)), maxMoves).toString();
+    }
+}
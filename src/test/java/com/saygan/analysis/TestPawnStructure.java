@@ -0,0 +1,68 @@
+package com.saygan.analysis;
+
+import static com.saygan.Bitboards.bits;
+import static com.saygan.Bitboards.square;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import org.junit.Test;
+
+import com.saygan.Pieces;
+import com.saygan.Position;
+import com.saygan.Turn;
+import com.saygan.file.FenReader;
+
+public class TestPawnStructure {
+
+    @Test
+    public void shouldFindPawnFeatures() {
+        PawnStructure structure = PawnStructure.analyze(position("6k1/5ppp/3p4/4P3/2P5/2P5/P7/6K1 w - - 0 1"));
+
+        assertThat(structure.getPassed(Turn.WHITE), equalTo(bits("a2")));
+        assertThat(structure.getIsolated(Turn.WHITE), equalTo(bits("a2", "c3", "c4", "e5")));
+        assertThat(structure.getDoubled(Turn.WHITE), equalTo(bits("c3")));
+        assertThat(structure.getIslands(Turn.WHITE), equalTo(3));
+        assertThat(structure.getShelter(Turn.WHITE), equalTo(0));
+
+        assertThat(structure.getPassed(Turn.BLACK), equalTo(bits("g7", "h7")));
+        assertThat(structure.getIsolated(Turn.BLACK), equalTo(bits("d6")));
+        assertThat(structure.getBackward(Turn.BLACK), equalTo(0L));
+        assertThat(structure.getIslands(Turn.BLACK), equalTo(2));
+        assertThat(structure.getShelter(Turn.BLACK), equalTo(3));
+
+        assertThat(structure.describe(Turn.WHITE), equalTo("passed:a2 isolated:a2,c3,c4,e5 doubled:c3 backward: islands:3 shelter:0"));
+    }
+
+    @Test
+    public void shouldFindBackwardPawn() {
+        PawnStructure structure = PawnStructure.analyze(position("4k3/8/8/4p3/2P5/3P4/8/4K3 w - - 0 1"));
+
+        assertThat(structure.getBackward(Turn.WHITE), equalTo(bits("d3")));
+        assertThat(structure.getIsolated(Turn.WHITE), equalTo(0L));
+    }
+
+    @Test
+    public void shouldReuseAnalysisWhilePawnsAndKingsStay() {
+        PawnHashTable table = new PawnHashTable(16);
+        Position position = position("r3k3/1p6/8/8/8/8/1P6/R3K3 w - - 0 1");
+
+        PawnStructure first = table.get(position);
+        position.makeMove(square("a1"), square("a7"), Pieces.NONE);
+        PawnStructure second = table.get(position);
+
+        assertThat(second, sameInstance(first));
+        assertThat(table.getProbes(), equalTo(2L));
+        assertThat(table.getHits(), equalTo(1L));
+
+        position.makeMove(square("b7"), square("b5"), Pieces.NONE);
+        assertThat(table.get(position), not(sameInstance(first)));
+        assertThat(table.getHits(), equalTo(1L));
+        assertThat(table.getHitRate(), equalTo(1.0 / 3));
+    }
+
+    private Position position(String fen) {
+        return new Position(FenReader.read(fen));
+    }
+}
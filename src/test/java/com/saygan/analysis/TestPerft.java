@@ -0,0 +1,83 @@
+package com.saygan.analysis;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.saygan.Position;
+import com.saygan.file.FenReader;
+
+public class TestPerft {
+
+    private static final String KIWIPETE = "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1";
+    private static final String POSITION_3 = "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1";
+    private static final String POSITION_4 = "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1";
+    private static final String POSITION_5 = "rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8";
+    private static final String POSITION_6 = "r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10";
+
+    private static final String ILLEGAL_IN_PASSANT = "8/8/1k6/2b5/2pP4/8/5K2/8 b - d3 0 1";
+    private static final String IN_PASSANT_INTO_CHECK = "8/5bk1/8/2Pp4/8/1K6/8/8 w - d6 0 1";
+    private static final String DISCOVERED_CHECK = "8/8/2k5/5q2/5n2/8/5K2/8 b - - 0 1";
+
+    private Perft perft = new Perft();
+
+    @Test
+    public void shouldMatchReferenceCountsForStartPosition() {
+        assertThat(perft(FenReader.START_POSITION, 1), equalTo(20L));
+        assertThat(perft(FenReader.START_POSITION, 2), equalTo(400L));
+        assertThat(perft(FenReader.START_POSITION, 3), equalTo(8902L));
+        assertThat(perft(FenReader.START_POSITION, 4), equalTo(197281L));
+    }
+
+    @Test
+    public void shouldMatchReferenceCountsForTestPositions() {
+        assertThat(perft(KIWIPETE, 3), equalTo(97862L));
+        assertThat(perft(POSITION_3, 4), equalTo(43238L));
+        assertThat(perft(POSITION_4, 3), equalTo(9467L));
+        assertThat(perft(POSITION_5, 3), equalTo(62379L));
+        assertThat(perft(POSITION_6, 3), equalTo(89890L));
+    }
+
+    @Test
+    public void shouldMatchReferenceCountsForPinsAndChecks() {
+        assertThat(perft(ILLEGAL_IN_PASSANT, 6), equalTo(1440467L));
+        assertThat(perft(IN_PASSANT_INTO_CHECK, 6), equalTo(824064L));
+        assertThat(perft(DISCOVERED_CHECK, 4), equalTo(23527L));
+        assertThat(perft(POSITION_3, 5), equalTo(674624L));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectDivideWithoutRootMoves() {
+        new Perft().divide(new Position(FenReader.read(KIWIPETE)), 0);
+    }
+
+    @Test
+    public void shouldSplitNodesBetweenRootMoves() {
+        Map<String, Long> divide = new Perft(16).divide(new Position(FenReader.read(KIWIPETE)), 3);
+
+        long nodes = 0;
+        for (long count : divide.values()) {
+            nodes += count;
+        }
+
+        assertThat(divide.size(), equalTo(48));
+        assertThat(divide.get("e1g1"), equalTo(2059L));
+        assertThat(nodes, equalTo(97862L));
+    }
+
+    @Test
+    public void shouldCountThroughHashTable() {
+        Perft hashedPerft = new Perft(16);
+        Position position = new Position(FenReader.read(POSITION_4));
+
+        assertThat(hashedPerft.perft(position, 4), equalTo(422333L));
+        assertThat(hashedPerft.perft(position, 4), equalTo(422333L));
+    }
+
+    private long perft(String fen, int depth) {
+        return perft.perft(new Position(FenReader.read(fen)), depth);
+    }
+}
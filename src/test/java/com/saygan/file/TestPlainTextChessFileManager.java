@@ -49,7 +49,7 @@ public class TestPlainTextChessFileManager {
         w.write("black=c8:K,d8:R,c7:P\n");
         w.write("whiteCastleConditions=true,true,true\n");
         w.write("blackCastleConditions=false,false,false\n");
-        w.write("snapshots=wQ..wN..bP:2,wK....wR..:1\n");
+        w.write("repetitionKeys=8f3a5c2e1d0b4a96,1d2c3b4a5f6e7d80\n");
         w.close();
 
         GameState gameState = fileManager.load(filePathToLoad);
@@ -61,7 +61,7 @@ public class TestPlainTextChessFileManager {
         assertThat(gameState.getBlack(), equalTo(map("c8", "bK", "d8", "bR", "c7", "bP")));
         assertThat(gameState.getWhiteCastleConditions(), equalTo(new boolean[] {true, true, true}));
         assertThat(gameState.getBlackCastleConditions(), equalTo(new boolean[] {false, false, false}));
-        assertThat(gameState.getSnapshots(), equalTo(map("wK....wR..", 1, "wQ..wN..bP", 2)));
+        assertThat(gameState.getRepetitionKeys(), equalTo(new long[] {0x8f3a5c2e1d0b4a96L, 0x1d2c3b4a5f6e7d80L}));
     }
 
     @Test
@@ -80,9 +80,7 @@ public class TestPlainTextChessFileManager {
         boolean[] expectedWhiteCastleConditions = new boolean[] {true, true, false};
         boolean[] expectedBlackCastleConditions = new boolean[] {false, true, true};
 
-        Map<String, Integer> expectedSnapshots = new HashMap<>();
-        expectedSnapshots.put("wQ..wB....", 1);
-        expectedSnapshots.put("bQ....bB..", 2);
+        long[] expectedRepetitionKeys = new long[] {0xfedcba9876543210L, 0x0123456789abcdefL};
 
         GameState gameState = new GameState(Turn.WHITE);
         gameState.setUnderCheck(Turn.WHITE);
@@ -91,7 +89,7 @@ public class TestPlainTextChessFileManager {
         gameState.setBlack(expectedBlack);
         gameState.setWhiteCastleConditions(expectedWhiteCastleConditions);
         gameState.setBlackCastleConditions(expectedBlackCastleConditions);
-        gameState.setSnapshots(expectedSnapshots);
+        gameState.setRepetitionKeys(expectedRepetitionKeys);
 
         String filePathToSave = root.getAbsolutePath() + "/" + FILENAME;
 
@@ -104,7 +102,7 @@ public class TestPlainTextChessFileManager {
         Map<String, String> actualblack = readBlack(filePathToSave);
         boolean[] actualWhiteCastleConditions = readWhiteCastleConditions(filePathToSave);
         boolean[] actualBlackCastleConditions = readBlackCastleConditions(filePathToSave);
-        Map<String, Integer> actualSnapshots = readSnapshots(filePathToSave);
+        long[] actualRepetitionKeys = readRepetitionKeys(filePathToSave);
 
         assertThat(turn, equalTo(Turn.WHITE));
         assertThat(underCheck, equalTo(Turn.WHITE));
@@ -113,18 +111,31 @@ public class TestPlainTextChessFileManager {
         assertThat(actualblack, equalTo(expectedBlack));
         assertThat(actualWhiteCastleConditions, equalTo(expectedWhiteCastleConditions));
         assertThat(actualBlackCastleConditions, equalTo(expectedBlackCastleConditions));
-        assertThat(actualSnapshots, equalTo(expectedSnapshots));
+        assertThat(actualRepetitionKeys, equalTo(expectedRepetitionKeys));
     }
 
-    private Map<String, Integer> readSnapshots(String filePathToSave) throws IOException {
-        String snapshotsRaw = getFiledValue("snapshots", filePathToSave);
-        String[] snapshotsToCount = snapshotsRaw.split(",");
-        Map<String, Integer> snapshots = new HashMap<>();
-        for(String snapshotToCountRaw : snapshotsToCount) {
-            String[] snapshotToCount = snapshotToCountRaw.split(":");
-            snapshots.put(snapshotToCount[0], Integer.parseInt(snapshotToCount[1]));
+    @Test
+    public void shouldSavePawnStructureWhenGiven() throws IOException {
+        GameState gameState = FenReader.read("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR b KQkq - 0 1");
+        gameState.setWhitePawnStructure("passed:a2 isolated:a2 doubled: backward: islands:1 shelter:0");
+        gameState.setBlackPawnStructure("passed: isolated: doubled: backward: islands:0 shelter:0");
+
+        String filePathToSave = root.getAbsolutePath() + "/" + FILENAME;
+
+        fileManager.save(filePathToSave, gameState);
+
+        assertThat(getFiledValue("whitePawnStructure", filePathToSave), equalTo("passed:a2 isolated:a2 doubled: backward: islands:1 shelter:0"));
+        assertThat(getFiledValue("blackPawnStructure", filePathToSave), equalTo("passed: isolated: doubled: backward: islands:0 shelter:0"));
+        assertThat(fileManager.load(filePathToSave).getTurn(), equalTo(Turn.BLACK));
+    }
+
+    private long[] readRepetitionKeys(String filePathToSave) throws IOException {
+        String[] keysRaw = getFiledValue("repetitionKeys", filePathToSave).split(",");
+        long[] repetitionKeys = new long[keysRaw.length];
+        for(int i = 0; i < keysRaw.length; ++i) {
+            repetitionKeys[i] = Long.parseUnsignedLong(keysRaw[i], 16);
         }
-        return snapshots;
+        return repetitionKeys;
     }
 
     private boolean[] readWhiteCastleConditions(String filePathToSave) throws IOException {
@@ -179,7 +190,7 @@ public class TestPlainTextChessFileManager {
         }
 
         for(String line : Files.readAllLines(Paths.get(filePathToSave))) {
-            String[] keyValue = line.split("=");
+            String[] keyValue = line.split("=", 2);
             cache.put(keyValue[0], keyValue[1]);
         }
         return cache.get(field);
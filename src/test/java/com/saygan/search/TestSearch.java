@@ -0,0 +1,74 @@
+package com.saygan.search;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import org.junit.Test;
+
+import com.saygan.Move;
+import com.saygan.Position;
+import com.saygan.file.FenReader;
+
+public class TestSearch {
+
+    private Search search = new Search();
+
+    @Test
+    public void shouldFindMateInOne() {
+        SearchResult result = search("6k1/5ppp/8/8/8/8/8/R5K1 w - - 0 1", SearchLimits.depth(3));
+
+        assertThat(Move.name(result.getBestMove()), equalTo("a1a8"));
+        assertThat(result.getScore(), equalTo(Search.MATE - 1));
+    }
+
+    @Test
+    public void shouldFindMateInTwo() {
+        SearchResult result = search("k7/8/2K5/8/8/8/8/7R w - - 0 1", SearchLimits.depth(5));
+
+        assertThat(result.getScore(), equalTo(Search.MATE - 3));
+        assertThat(result.getPrincipalVariation().length, equalTo(3));
+        assertThat(result.getPrincipalVariation()[0], equalTo(result.getBestMove()));
+    }
+
+    @Test
+    public void shouldWinHangingQueen() {
+        SearchResult result = search("4k3/8/8/3q4/8/8/8/3RK3 w - - 0 1", SearchLimits.depth(4));
+
+        assertThat(Move.name(result.getBestMove()), equalTo("d1d5"));
+        assertThat(result.getScore() > 300, equalTo(true));
+    }
+
+    @Test
+    public void shouldNotTakePoisonedPawn() {
+        SearchResult result = search("4k3/8/2p5/3p4/8/8/8/3QK3 w - - 0 1", SearchLimits.depth(2));
+
+        assertThat(Move.name(result.getBestMove()).equals("d1d5"), equalTo(false));
+    }
+
+    @Test
+    public void shouldScoreInsufficientMaterialAsDraw() {
+        SearchResult result = search("4k3/8/3b4/8/8/3B4/8/4K3 w - - 0 1", SearchLimits.depth(3));
+
+        assertThat(result.getScore(), equalTo(0));
+    }
+
+    @Test
+    public void shouldStopAtRequestedDepth() {
+        SearchResult result = search(FenReader.START_POSITION, SearchLimits.depth(4));
+
+        assertThat(result.getDepth(), equalTo(4));
+        assertThat(result.getPrincipalVariation().length >= 4, equalTo(true));
+        assertThat(result.getNodes() > 0, equalTo(true));
+    }
+
+    @Test
+    public void shouldReturnNoMoveWhenThereIsNone() {
+        SearchResult result = search("k7/2Q5/1K6/8/8/8/8/8 b - - 0 1", SearchLimits.time(100));
+
+        assertThat(result.getBestMove(), equalTo(Move.NONE));
+    }
+
+    private SearchResult search(String fen, SearchLimits limits) {
+        return search.search(new Position(FenReader.read(fen)), limits);
+    }
+}